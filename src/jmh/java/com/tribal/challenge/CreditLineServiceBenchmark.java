@@ -0,0 +1,140 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.config.CreditLineMetrics;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.CreditRequestView;
+import com.tribal.challenge.models.enums.BusinessType;
+import com.tribal.challenge.repository.CreditLineRepository;
+import com.tribal.challenge.services.CreditLineServiceImpl;
+import com.tribal.challenge.services.CreditScoringEngine;
+import com.tribal.challenge.services.LiveSettings;
+import com.tribal.challenge.services.LiveSettingsHolder;
+import com.tribal.challenge.services.RateLimitService;
+import com.tribal.challenge.services.RateLimitVerdict;
+import com.tribal.challenge.services.SmeScoringRule;
+import com.tribal.challenge.services.StartupScoringRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full credit evaluation for a new client. The collaborators never remember anything, so every
+ * invocation validates, scores and saves instead of returning an existing credit line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CreditLineServiceBenchmark {
+
+    private static final ClientKey CLIENT = ClientKey.of("10.0.0.1");
+
+    private CreditScoringEngine scoringEngine;
+    private CreditLineServiceImpl creditLineService;
+    private CreditRequestData startupData;
+
+    @Setup
+    public void setUp(){
+        var settings = new LiveSettingsHolder(new LiveSettings(3, 3, 2, 30, 3, 5));
+        scoringEngine = new CreditScoringEngine(List.of(new SmeScoringRule(settings), new StartupScoringRule(settings)));
+        startupData = new CreditRequestData();
+        startupData.setFoundingType(BusinessType.STARTUP.name());
+        startupData.setCashBalance(600);
+        startupData.setMonthlyRevenue(500);
+        startupData.setRequestedCreditLine(200);
+
+        creditLineService = new CreditLineServiceImpl(new AlwaysAllowedRateLimitService(), new NoStorageCreditLineRepository(),
+                scoringEngine, new CreditLineMetrics(new SimpleMeterRegistry()), settings, 16, 100, 100_000, 10_000);
+    }
+
+    @Benchmark
+    public CreditRequestView requestCreditLine_SME(){
+        var data = new CreditRequestData();
+        data.setFoundingType(BusinessType.SME.name());
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(100);
+        data.setRequestedDate(LocalDateTime.of(2021, 8, 31, 4, 34, 57));
+
+        return creditLineService.requestCreditLine(data, CLIENT).block();
+    }
+
+    @Benchmark
+    public CreditRequestView requestCreditLine_Startup(){
+        var data = new CreditRequestData();
+        data.setFoundingType(BusinessType.STARTUP.name());
+        data.setCashBalance(600);
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(200);
+        data.setRequestedDate(LocalDateTime.of(2021, 8, 31, 4, 34, 57));
+
+        return creditLineService.requestCreditLine(data, CLIENT).block();
+    }
+
+    @Benchmark
+    public boolean approves_Startup(){
+        return scoringEngine.approves(startupData);
+    }
+
+    private static class AlwaysAllowedRateLimitService implements RateLimitService {
+        private static final Mono<Boolean> TRUE = Mono.just(true);
+        private static final Mono<Integer> NO_ATTEMPTS = Mono.just(0);
+        private static final Mono<RateLimitVerdict> ALLOWED = Mono.just(RateLimitVerdict.ALLOWED);
+
+        @Override
+        public Mono<Boolean> checkRateLimit(ClientKey client) {
+            return TRUE;
+        }
+
+        @Override
+        public Mono<RateLimitVerdict> verdict(ClientKey client) {
+            return ALLOWED;
+        }
+
+        @Override
+        public Mono<Boolean> blockUser(ClientKey client) {
+            return TRUE;
+        }
+
+        @Override
+        public Mono<Boolean> resetUserAttempts(ClientKey client) {
+            return TRUE;
+        }
+
+        @Override
+        public Mono<Integer> retrieveUserAttempts(ClientKey client) {
+            return NO_ATTEMPTS;
+        }
+    }
+
+    private static class NoStorageCreditLineRepository implements CreditLineRepository {
+        @Override
+        public Mono<CreditRequestView> retrieveCreditLine(ClientKey client) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Boolean> alreadyHasCreditLine(ClientKey client) {
+            return Mono.just(false);
+        }
+
+        @Override
+        public Mono<CreditRequestView> saveCreditRequest(CreditRequestData creditRequestData, ClientKey client) {
+            return Mono.just(CreditRequestView.of(creditRequestData));
+        }
+
+        @Override
+        public Mono<CreditRequestView> retrieveCreditLineById(String id) {
+            return Mono.empty();
+        }
+    }
+}
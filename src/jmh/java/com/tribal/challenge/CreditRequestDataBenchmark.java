@@ -0,0 +1,41 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.enums.BusinessType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CreditRequestDataBenchmark {
+
+    @Benchmark
+    public CreditRequestData validate_SME(){
+        var data = new CreditRequestData();
+        data.setFoundingType(BusinessType.SME.name());
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(100);
+        data.setRequestedDate(LocalDateTime.of(2021, 8, 31, 4, 34, 57));
+
+        return data.validate().block();
+    }
+
+    @Benchmark
+    public CreditRequestData validate_Startup(){
+        var data = new CreditRequestData();
+        data.setFoundingType(" startup ");
+        data.setCashBalance(600);
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(200);
+
+        return data.validate().block();
+    }
+}
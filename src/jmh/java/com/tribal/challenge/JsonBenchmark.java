@@ -0,0 +1,58 @@
+package com.tribal.challenge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.CreditRequestView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request and response bodies with an ObjectMapper configured like the one WebFlux uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonBenchmark {
+
+    private static final byte[] REQUEST_BODY = ("{\"foundingType\":\"startup\",\"cashBalance\":4003,\"monthlyRevenue\":30,"
+            + "\"requestedCreditLine\":1334.3,\"requestedDate\":\"2021-08-31T04:34:57.024\"}").getBytes(StandardCharsets.UTF_8);
+
+    private ObjectReader requestReader;
+    private ObjectWriter viewWriter;
+    private CreditRequestView view;
+
+    @Setup
+    public void setUp(){
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        requestReader = objectMapper.readerFor(CreditRequestData.class);
+        viewWriter = objectMapper.writerFor(CreditRequestView.class);
+
+        var data = new CreditRequestData();
+        data.setRequestedCreditLine(1334.3);
+        data.setRequestedDate(LocalDateTime.of(2021, 8, 31, 4, 34, 57, 24_000_000));
+        view = CreditRequestView.of(data);
+    }
+
+    @Benchmark
+    public CreditRequestData deserialize_CreditRequestData() throws IOException {
+        return requestReader.readValue(REQUEST_BODY);
+    }
+
+    @Benchmark
+    public byte[] serialize_CreditRequestView() throws IOException {
+        return viewWriter.writeValueAsBytes(view);
+    }
+}
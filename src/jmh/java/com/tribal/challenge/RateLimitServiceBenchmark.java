@@ -0,0 +1,78 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.services.LiveSettings;
+import com.tribal.challenge.services.LiveSettingsHolder;
+import com.tribal.challenge.services.RateLimitServiceImpl;
+import com.tribal.challenge.services.RateLimitStateStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RateLimitServiceBenchmark {
+
+    @Param({"1", "1000", "100000"})
+    private int ipCardinality;
+
+    @Param({"sliding-log", "ring-buffer", "sliding-counter", "token-bucket", "gcra"})
+    private String algorithm;
+
+    private ClientKey[] ips;
+    private RateLimitStateStore stateStore;
+    private RateLimitServiceImpl rateLimitService;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        ips = new ClientKey[ipCardinality];
+        for(var i = 0; i < ipCardinality; i++){
+            ips[i] = ClientKey.of("10." + (i >> 16 & 0xFF) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF));
+        }
+
+        var settings = new LiveSettingsHolder(new LiveSettings(3, 3, 2, 30, 3, 5));
+        stateStore = new RateLimitStateStore(settings, 1440, 1_000_000, 10, algorithm);
+        rateLimitService = new RateLimitServiceImpl(stateStore, settings);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        stateStore.shutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Boolean checkRateLimit_1Thread(){
+        return checkRateLimit();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Boolean checkRateLimit_8Threads(){
+        return checkRateLimit();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Boolean checkRateLimit_64Threads(){
+        return checkRateLimit();
+    }
+
+    private Boolean checkRateLimit(){
+        var ip = ips[ThreadLocalRandom.current().nextInt(ipCardinality)];
+
+        return rateLimitService.checkRateLimit(ip).block();
+    }
+}
@@ -0,0 +1,92 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.services.LiveSettings;
+import com.tribal.challenge.services.LiveSettingsHolder;
+import com.tribal.challenge.services.RateLimitServiceImpl;
+import com.tribal.challenge.services.RateLimitStateStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to save the rate limit table of many clients, and to restore it on startup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RateLimitSnapshotBenchmark {
+
+    @Param({"1000000"})
+    private int clients;
+
+    @Param({"sliding-log", "gcra"})
+    private String algorithm;
+
+    private final LiveSettingsHolder settings = new LiveSettingsHolder(new LiveSettings(3, 3, 2, 30, 3, 5));
+
+    private Path directory;
+    private RateLimitStateStore stateStore;
+    private RateLimitStateStore restoredStore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rate-limit-snapshot");
+        stateStore = newStateStore();
+        var rateLimitService = new RateLimitServiceImpl(stateStore, settings);
+
+        for(var i = 0; i < clients; i++){
+            var address = InetAddress.getByAddress(new byte[]{10, (byte) (i >>> 16), (byte) (i >>> 8), (byte) i});
+            rateLimitService.checkRateLimit(ClientKey.of(address)).block();
+        }
+        stateStore.snapshot();
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdownRestoredStore(){
+        if(restoredStore != null){
+            restoredStore.shutdown();
+            restoredStore = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        stateStore.shutdown();
+
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(it -> it.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void snapshot(){
+        stateStore.snapshot();
+    }
+
+    @Benchmark
+    public int restore(){
+        restoredStore = newStateStore();
+
+        return restoredStore.size();
+    }
+
+    private RateLimitStateStore newStateStore(){
+        return new RateLimitStateStore(settings, 1440, 2_000_000, 10, algorithm,
+                directory.resolve("rate-limit.snapshot").toString(), 3600);
+    }
+}
@@ -0,0 +1,169 @@
+package com.tribal.challenge;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.core.env.Environment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator for POST /v1/credits. Boots ChallengeApplication on a random port, unless
+ * {@code load.target} points to a running instance, and reports throughput and latency per status.
+ * <p>
+ * Every request opens its own connection bound to a 127.x.y.z loopback address, so the service sees
+ * {@code load.ips} different clients. Linux routes the whole 127.0.0.0/8 block to the loopback
+ * interface, other systems may need {@code load.ips=1}.
+ * <p>
+ * Options, as {@code --name=value} arguments together with any {@code configs.*} property of the service:
+ * load.requests (default 20000), load.concurrency (64), load.ips (1000), load.ip-distribution
+ * (uniform or zipf, default uniform), load.startup-ratio (0.5), load.rejected-ratio (0.1), load.target.
+ */
+public class LoadTest {
+
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+    private static final String SME_BODY = "{\"foundingType\":\"SME\",\"monthlyRevenue\":500,\"requestedCreditLine\":100}";
+    private static final String STARTUP_BODY = "{\"foundingType\":\"startup\",\"cashBalance\":600,\"monthlyRevenue\":500,\"requestedCreditLine\":200}";
+    private static final String REJECTED_BODY = "{\"foundingType\":\"SME\",\"monthlyRevenue\":500,\"requestedCreditLine\":100000}";
+
+    private final Map<Integer, Histogram> latencies = new ConcurrentHashMap<>();
+
+    private final String target;
+    private final int requests;
+    private final int concurrency;
+    private final String[] ips;
+    private final double[] ipWeights;
+    private final double startupRatio;
+    private final double rejectedRatio;
+
+    private LoadTest(Environment environment, String target) {
+        this.target = target;
+        this.requests = environment.getProperty("load.requests", Integer.class, 20_000);
+        this.concurrency = environment.getProperty("load.concurrency", Integer.class, 64);
+        this.startupRatio = environment.getProperty("load.startup-ratio", Double.class, 0.5);
+        this.rejectedRatio = environment.getProperty("load.rejected-ratio", Double.class, 0.1);
+
+        var ipCount = environment.getProperty("load.ips", Integer.class, 1_000);
+        this.ips = new String[ipCount];
+        for(var i = 0; i < ipCount; i++){
+            ips[i] = "127." + (1 + (i >> 16 & 0xFF)) + "." + (i >> 8 & 0xFF) + "." + (i & 0xFF);
+        }
+
+        var zipf = "zipf".equalsIgnoreCase(environment.getProperty("load.ip-distribution", "uniform"));
+        this.ipWeights = cumulativeWeights(ipCount, zipf);
+    }
+
+    public static void main(String[] args) {
+        var application = new SpringApplication(ChallengeApplication.class);
+        application.setDefaultProperties(Map.of("server.port", "0"));
+
+        try (var context = application.run(args)) {
+            var environment = context.getEnvironment();
+            var target = environment.getProperty("load.target",
+                    "http://localhost:" + environment.getProperty("local.server.port"));
+
+            new LoadTest(environment, target).run();
+        }
+    }
+
+    private void run(){
+        System.out.printf("Sending %d requests to %s, concurrency %d, %d client IPs.%n", requests, target, concurrency, ips.length);
+
+        var start = System.nanoTime();
+
+        Flux.range(0, requests)
+                .flatMap(it -> send(), concurrency)
+                .blockLast();
+
+        var elapsed = System.nanoTime() - start;
+        report(elapsed);
+    }
+
+    private Mono<Integer> send(){
+        var random = ThreadLocalRandom.current();
+        var ip = ips[pickIp(random.nextDouble())];
+        var body = pickBody(random.nextDouble());
+        var start = System.nanoTime();
+
+        return HttpClient.newConnection()
+                .bindAddress(() -> new InetSocketAddress(ip, 0))
+                .headers(headers -> headers.set("Content-Type", "application/json"))
+                .post()
+                .uri(target + "/v1/credits")
+                .send(ByteBufFlux.fromString(Mono.just(body)))
+                .responseSingle((response, content) -> content.then(Mono.just(response.status().code())))
+                .onErrorReturn(-1)
+                .doOnNext(status -> latencies
+                        .computeIfAbsent(status, it -> new ConcurrentHistogram(HIGHEST_LATENCY, 3))
+                        .recordValue(Math.min(System.nanoTime() - start, HIGHEST_LATENCY)));
+    }
+
+    private int pickIp(double value){
+        var low = 0;
+        var high = ipWeights.length - 1;
+
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if(ipWeights[middle] < value){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private String pickBody(double value){
+        if(value < rejectedRatio){
+            return REJECTED_BODY;
+        }
+
+        return value < rejectedRatio + (1 - rejectedRatio) * startupRatio ? STARTUP_BODY : SME_BODY;
+    }
+
+    private void report(long elapsedNanos){
+        var seconds = elapsedNanos / 1e9;
+        System.out.printf("%nCompleted %d requests in %.2f s, %.1f requests/s.%n", requests, seconds, requests / seconds);
+        System.out.printf("%-8s %10s %10s %10s %10s %10s%n", "status", "count", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        new TreeMap<>(latencies).forEach((status, histogram) -> System.out.printf("%-8s %10d %10.2f %10.2f %10.2f %10.2f%n",
+                status == -1 ? "error" : status.toString(),
+                histogram.getTotalCount(),
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue())));
+    }
+
+    private static double millis(long nanos){
+        return nanos / 1e6;
+    }
+
+    // Cumulative distribution over the client IPs, zipf makes the first IPs send most of the traffic.
+    private static double[] cumulativeWeights(int count, boolean zipf){
+        var weights = new double[count];
+        var total = 0D;
+
+        for(var i = 0; i < count; i++){
+            total += zipf ? 1D / (i + 1) : 1D;
+            weights[i] = total;
+        }
+
+        for(var i = 0; i < count; i++){
+            weights[i] /= total;
+        }
+
+        return weights;
+    }
+}
@@ -2,8 +2,11 @@ package com.tribal.challenge;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration;
 
-@SpringBootApplication
+// The shared rate limit store builds its own Redis connection, only when it is enabled.
+@SpringBootApplication(exclude = {RedisAutoConfiguration.class, RedisReactiveAutoConfiguration.class})
 public class ChallengeApplication {
 
 	public static void main(String[] args) {
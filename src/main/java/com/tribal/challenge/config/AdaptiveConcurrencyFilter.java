@@ -0,0 +1,173 @@
+package com.tribal.challenge.config;
+
+import com.tribal.challenge.config.exceptions.ErrorPayload;
+import com.tribal.challenge.models.enums.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the requests in flight on the whole instance and adapts the cap to their latency (AIMD): a request
+ * answered within {@code latency-target.millis} while the cap is in use raises it by 1 / cap, so by about one
+ * per round of requests, a slower or failed one cuts it by {@code backoff-ratio}, at most once per latency
+ * target. Requests over the cap get a 503 with a {@code Retry-After} before any other work is done, and their
+ * exchange is marked with {@link #SHED_ATTRIBUTE}.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class AdaptiveConcurrencyFilter implements WebFilter {
+
+    public static final String SHED_ATTRIBUTE = AdaptiveConcurrencyFilter.class.getName() + ".shed";
+
+    private static final String ACTUATOR_PATH = "/actuator";
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private static final ErrorPayload OVERLOADED = ErrorPayload.of(ErrorCode.OVERLOADED, "Service overloaded, please try later");
+
+    private final boolean ENABLED;
+    private final double MIN_LIMIT;
+    private final double MAX_LIMIT;
+    private final long LATENCY_TARGET;
+    private final double BACKOFF_RATIO;
+
+    // Current cap as double bits, so the additive increase can add fractions of a request.
+    private final AtomicLong limit;
+    private final AtomicInteger inFlight;
+    private final AtomicLong lastDecrease;
+    private final AtomicLong shedRequests;
+
+    public AdaptiveConcurrencyFilter(@Value("${configs.concurrency.enabled:false}") boolean enabled,
+                                     @Value("${configs.concurrency.initial-limit:100}") int initialLimit,
+                                     @Value("${configs.concurrency.min-limit:10}") int minLimit,
+                                     @Value("${configs.concurrency.max-limit:1000}") int maxLimit,
+                                     @Value("${configs.concurrency.latency-target.millis:200}") long latencyTarget,
+                                     @Value("${configs.concurrency.backoff-ratio:0.9}") double backoffRatio) {
+        if(minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit){
+            throw new IllegalArgumentException("configs.concurrency limits should be 1 <= min-limit <= initial-limit <= max-limit");
+        }
+
+        if(backoffRatio <= 0 || backoffRatio >= 1){
+            throw new IllegalArgumentException("configs.concurrency.backoff-ratio should be between 0 and 1");
+        }
+
+        this.ENABLED = enabled;
+        this.MIN_LIMIT = minLimit;
+        this.MAX_LIMIT = maxLimit;
+        this.LATENCY_TARGET = Duration.ofMillis(latencyTarget).toNanos();
+        this.BACKOFF_RATIO = backoffRatio;
+
+        this.limit = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        this.inFlight = new AtomicInteger();
+        this.lastDecrease = new AtomicLong(System.nanoTime() - LATENCY_TARGET);
+        this.shedRequests = new AtomicLong();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if(!ENABLED || exchange.getRequest().getPath().pathWithinApplication().value().startsWith(ACTUATOR_PATH)){
+            return chain.filter(exchange);
+        }
+
+        var current = limit();
+        if(inFlight.incrementAndGet() > current){
+            inFlight.decrementAndGet();
+            shedRequests.incrementAndGet();
+            log.debug("Shedding request, {} requests in flight for a limit of {}.", inFlight.get(), current);
+
+            return reject(exchange);
+        }
+
+        var start = System.nanoTime();
+
+        return chain.filter(exchange)
+                .doFinally(signal -> complete(exchange, signal, System.nanoTime() - start));
+    }
+
+    private void complete(ServerWebExchange exchange, SignalType signal, long elapsedNanos){
+        var used = inFlight.getAndDecrement();
+
+        if(signal == SignalType.CANCEL){
+            return;
+        }
+
+        var status = exchange.getResponse().getRawStatusCode();
+        var failed = signal == SignalType.ON_ERROR || status != null && status >= 500;
+
+        if(failed || elapsedNanos > LATENCY_TARGET){
+            decrease();
+        } else if(used * 2 >= limit()){
+            // Only grow while the cap is in use, an idle instance says nothing about how much it can take.
+            increase();
+        }
+    }
+
+    private void increase(){
+        while (true) {
+            var bits = limit.get();
+            var current = Double.longBitsToDouble(bits);
+            var next = Math.min(current + 1 / current, MAX_LIMIT);
+
+            if(next == current || limit.compareAndSet(bits, Double.doubleToLongBits(next))){
+                return;
+            }
+        }
+    }
+
+    private void decrease(){
+        var now = System.nanoTime();
+        var last = lastDecrease.get();
+
+        // Slow requests finish together, one cut per latency target lets the previous one take effect.
+        if(now - last < LATENCY_TARGET || !lastDecrease.compareAndSet(last, now)){
+            return;
+        }
+
+        while (true) {
+            var bits = limit.get();
+            var next = Math.max(Double.longBitsToDouble(bits) * BACKOFF_RATIO, MIN_LIMIT);
+
+            if(limit.compareAndSet(bits, Double.doubleToLongBits(next))){
+                log.debug("Concurrency limit lowered to {}.", next);
+                return;
+            }
+        }
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange){
+        exchange.getAttributes().put(SHED_ATTRIBUTE, Boolean.TRUE);
+
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+
+        return response.writeWith(Mono.just(OVERLOADED.asDataBuffer(response.bufferFactory())));
+    }
+
+    public int limit(){
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    public int inFlight(){
+        return inFlight.get();
+    }
+
+    public long shedRequests(){
+        return shedRequests.get();
+    }
+}
@@ -0,0 +1,124 @@
+package com.tribal.challenge.config;
+
+import com.tribal.challenge.models.enums.BusinessType;
+import com.tribal.challenge.services.RateLimitVerdict;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the rate limit filter and the credit line pipeline. Every meter is registered once
+ * here, so recording on a request never builds tags or looks a meter up in the registry.
+ */
+@Component
+public class CreditLineMetrics {
+
+    private final Timer rateLimitCheck;
+    private final Timer creditRequest;
+    private final Timer validation;
+    private final Timer repositoryRetrieve;
+    private final Timer repositorySave;
+
+    private final Map<RateLimitVerdict.Scope, Counter> rateLimited = new EnumMap<>(RateLimitVerdict.Scope.class);
+    private final Counter blocks;
+    private final Counter maxAttemptsExceeded;
+    private final Counter coalesced;
+    private final Map<BusinessType, Counter> approvals = new EnumMap<>(BusinessType.class);
+
+    public CreditLineMetrics(MeterRegistry registry) {
+        this.rateLimitCheck = Timer.builder("rate_limit.check")
+                .description("Time to decide if a request is under the rate limit.")
+                .register(registry);
+        this.creditRequest = Timer.builder("credit_line.request")
+                .description("Time to answer a credit line request, rejections included.")
+                .register(registry);
+        this.validation = Timer.builder("credit_line.validation")
+                .description("Time to validate a credit line request.")
+                .register(registry);
+        this.repositoryRetrieve = Timer.builder("credit_line.repository")
+                .description("Time spent in the credit line repository.")
+                .tag("operation", "retrieve")
+                .register(registry);
+        this.repositorySave = Timer.builder("credit_line.repository")
+                .description("Time spent in the credit line repository.")
+                .tag("operation", "save")
+                .register(registry);
+
+        for(var scope: RateLimitVerdict.Scope.values()){
+            rateLimited.put(scope, Counter.builder("rate_limit.rejected")
+                    .description("Requests answered with 429 Too Many Requests.")
+                    .tag("scope", scope.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+        this.blocks = Counter.builder("rate_limit.blocks")
+                .description("Failed credit line requests counted against a client.")
+                .register(registry);
+        this.maxAttemptsExceeded = Counter.builder("credit_line.max_attempts_exceeded")
+                .description("Credit line requests rejected because the client ran out of attempts.")
+                .register(registry);
+        this.coalesced = Counter.builder("credit_line.coalesced")
+                .description("Credit line requests answered with the result of a request of the same client already running.")
+                .register(registry);
+
+        for(var type: BusinessType.values()){
+            approvals.put(type, Counter.builder("credit_line.approved")
+                    .description("Credit lines approved.")
+                    .tag("business_type", type.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+    }
+
+    public <T> Mono<T> time(Timer timer, Mono<T> source){
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return source.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    public Timer rateLimitCheck(){
+        return rateLimitCheck;
+    }
+
+    public Timer creditRequest(){
+        return creditRequest;
+    }
+
+    public Timer validation(){
+        return validation;
+    }
+
+    public Timer repositoryRetrieve(){
+        return repositoryRetrieve;
+    }
+
+    public Timer repositorySave(){
+        return repositorySave;
+    }
+
+    public void rateLimited(RateLimitVerdict.Scope scope){
+        rateLimited.get(scope).increment();
+    }
+
+    public void blocked(){
+        blocks.increment();
+    }
+
+    public void maxAttemptsExceeded(){
+        maxAttemptsExceeded.increment();
+    }
+
+    public void coalesced(){
+        coalesced.increment();
+    }
+
+    public void approved(BusinessType type){
+        approvals.get(type).increment();
+    }
+}
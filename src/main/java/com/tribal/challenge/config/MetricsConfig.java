@@ -0,0 +1,54 @@
+package com.tribal.challenge.config;
+
+import com.tribal.challenge.repository.CreditLineRepositoryCacheImpl;
+import com.tribal.challenge.services.RateLimitStateStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder rateLimitStateMetrics(RateLimitStateStore stateStore){
+        return registry -> {
+            Gauge.builder("rate_limit.clients", stateStore, RateLimitStateStore::size)
+                    .description("Clients tracked by the rate limit.")
+                    .register(registry);
+            FunctionCounter.builder("rate_limit.clients.expired", stateStore, RateLimitStateStore::expiredEntries)
+                    .description("Clients forgotten by the rate limit after being idle.")
+                    .register(registry);
+            FunctionCounter.builder("rate_limit.clients.evicted", stateStore, RateLimitStateStore::evictedEntries)
+                    .description("Clients evicted from the rate limit because of configs.limits.max-clients.")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder concurrencyLimitMetrics(AdaptiveConcurrencyFilter concurrencyFilter){
+        return registry -> {
+            Gauge.builder("concurrency.limit", concurrencyFilter, AdaptiveConcurrencyFilter::limit)
+                    .description("Requests allowed in flight at once, adapted to their latency.")
+                    .register(registry);
+            Gauge.builder("concurrency.in_flight", concurrencyFilter, AdaptiveConcurrencyFilter::inFlight)
+                    .description("Requests in flight.")
+                    .register(registry);
+            FunctionCounter.builder("concurrency.shed", concurrencyFilter, AdaptiveConcurrencyFilter::shedRequests)
+                    .description("Requests answered with 503 Service Unavailable because of the concurrency limit.")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder creditLineCacheMetrics(ObjectProvider<CreditLineRepositoryCacheImpl> cacheRepository){
+        return registry -> cacheRepository.ifAvailable(repository -> {
+            GuavaCacheMetrics.monitor(registry, repository.creditLines(), "credit_line.cache");
+            GuavaCacheMetrics.monitor(registry, repository.missingCreditLines(), "credit_line.missing_cache");
+            GuavaCacheMetrics.monitor(registry, repository.creditLinesById(), "credit_line.id_cache");
+        });
+    }
+}
@@ -1,37 +1,94 @@
 package com.tribal.challenge.config;
 
+import com.tribal.challenge.config.exceptions.BusinessException;
+import com.tribal.challenge.config.exceptions.ErrorPayload;
+import com.tribal.challenge.controllers.CreditLineController;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.enums.ErrorCode;
+import com.tribal.challenge.services.IdempotencyCache;
 import com.tribal.challenge.services.RateLimitService;
+import com.tribal.challenge.services.RateLimitVerdict;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
 
+/**
+ * Rejects clients over the rate limit, and clients out of attempts asking for a credit line, before the
+ * request body is read. Retries of a credit line request already answered, or still running, are let
+ * through without taking a permit, they get the response of the first request.
+ */
 @Slf4j
 @Component
 @AllArgsConstructor
 public class RateLimitHandlerFilter implements WebFilter {
 
+    private static final String ACTUATOR_PATH = "/actuator";
+
+    private static final ErrorPayload TOO_MANY_REQUESTS = ErrorPayload.of(ErrorCode.RATE_LIMITED, "Too many requests, please try later");
+
     private final RateLimitService rateLimitService;
+    private final CreditLineMetrics metrics;
+    private final IdempotencyCache idempotencyCache;
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
-        var clientIp = exchange.getRequest()
+        var path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if(path.startsWith(ACTUATOR_PATH)){
+            return chain.filter(exchange);
+        }
+
+        var client = ClientKey.of(exchange.getRequest()
                 .getRemoteAddress()
-                .getAddress()
-                .getHostAddress();
-
-        return rateLimitService.checkRateLimit(clientIp)
-                .filter(it -> it)
-                .flatMap(it -> chain.filter(exchange))
-                .switchIfEmpty(Mono.defer(() -> {
-                    var response = exchange.getResponse();
-                    response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
-                    return response.setComplete();
-                }));
+                .getAddress());
+
+        if(isReplay(exchange.getRequest(), client)){
+            return chain.filter(exchange);
+        }
+
+        return metrics.time(metrics.rateLimitCheck(), rateLimitService.verdict(client))
+                .flatMap(verdict -> {
+                    switch (verdict.getOutcome()){
+                        case RATE_LIMITED:
+                            metrics.rateLimited(verdict.getScope());
+                            return reject(exchange, HttpStatus.TOO_MANY_REQUESTS, TOO_MANY_REQUESTS, verdict);
+                        case MAX_ATTEMPTS_EXCEEDED:
+                            if(isCreditLineRequest(exchange.getRequest())){
+                                metrics.maxAttemptsExceeded();
+                                return reject(exchange, HttpStatus.BAD_REQUEST, BusinessException.MAX_ATTEMPTS_EXCEEDED.getPayload(), verdict);
+                            }
+                            return chain.filter(exchange);
+                        default:
+                            return chain.filter(exchange);
+                    }
+                });
+    }
+
+    private boolean isCreditLineRequest(ServerHttpRequest request){
+        return request.getMethod() == HttpMethod.POST
+                && CreditLineController.CREDITS_PATH.equals(request.getPath().pathWithinApplication().value());
+    }
+
+    private boolean isReplay(ServerHttpRequest request, ClientKey client){
+        var idempotencyKey = request.getHeaders().getFirst(IdempotencyCache.HEADER);
+
+        return idempotencyKey != null && isCreditLineRequest(request) && idempotencyCache.contains(client, idempotencyKey);
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status, ErrorPayload body, RateLimitVerdict verdict){
+        var response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(verdict.getRetryAfterSeconds()));
 
+        return response.writeWith(Mono.just(body.asDataBuffer(response.bufferFactory())));
     }
 }
@@ -0,0 +1,78 @@
+package com.tribal.challenge.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logs a single line per request once the response is done. Successful requests are sampled,
+ * rejections, shed requests and errors are always logged.
+ */
+@Slf4j(topic = "requests")
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestSummaryFilter implements WebFilter {
+
+    private final boolean ENABLED;
+    private final double SUCCESS_SAMPLE_RATE;
+
+    public RequestSummaryFilter(@Value("${configs.logging.request-summary.enabled:true}") boolean enabled,
+                                @Value("${configs.logging.request-summary.success-sample-rate:0.01}") double successSampleRate) {
+        this.ENABLED = enabled;
+        this.SUCCESS_SAMPLE_RATE = successSampleRate;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if(!ENABLED){
+            return chain.filter(exchange);
+        }
+
+        var start = System.nanoTime();
+
+        return chain.filter(exchange)
+                .doFinally(signal -> summarize(exchange, signal, System.nanoTime() - start));
+    }
+
+    private void summarize(ServerWebExchange exchange, SignalType signal, long elapsedNanos){
+        var rawStatus = exchange.getResponse().getRawStatusCode();
+        var status = rawStatus != null ? rawStatus : signal == SignalType.ON_ERROR ? 500 : 200;
+
+        if(signal != SignalType.ON_ERROR && exchange.getAttribute(AdaptiveConcurrencyFilter.SHED_ATTRIBUTE) != null){
+            // Shed under overload, logged as a rejection so an overload does not flood the logs with warnings.
+            log.info(summary(exchange, "shed", status, elapsedNanos));
+        } else if(signal == SignalType.ON_ERROR || status >= 500){
+            log.warn(summary(exchange, "error", status, elapsedNanos));
+        } else if(signal == SignalType.CANCEL){
+            log.info(summary(exchange, "cancelled", status, elapsedNanos));
+        } else if(status >= 400){
+            log.info(summary(exchange, "rejected", status, elapsedNanos));
+        } else if(log.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < SUCCESS_SAMPLE_RATE){
+            log.info(summary(exchange, "success", status, elapsedNanos) + " sample_rate=" + SUCCESS_SAMPLE_RATE);
+        }
+    }
+
+    private String summary(ServerWebExchange exchange, String outcome, int status, long elapsedNanos){
+        var request = exchange.getRequest();
+        var remoteAddress = request.getRemoteAddress();
+        var client = remoteAddress == null || remoteAddress.getAddress() == null
+                ? "-"
+                : remoteAddress.getAddress().getHostAddress();
+
+        return "outcome=" + outcome
+                + " status=" + status
+                + " method=" + request.getMethodValue()
+                + " path=" + request.getPath().value()
+                + " client=" + client
+                + " duration_us=" + elapsedNanos / 1_000;
+    }
+}
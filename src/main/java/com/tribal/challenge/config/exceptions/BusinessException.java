@@ -2,17 +2,27 @@ package com.tribal.challenge.config.exceptions;
 
 import com.tribal.challenge.models.enums.ErrorCode;
 
+/**
+ * Expected rejection of a request. It carries no stack trace, so the shared instances below cost
+ * nothing to throw, and its error body is encoded once.
+ */
 public class BusinessException extends RuntimeException{
 
     private final String message;
     private final ErrorCode errorCode;
+    private final ErrorPayload payload;
 
     public static final BusinessException MAX_ATTEMPTS_EXCEEDED = new BusinessException(ErrorCode.REJECTED,
             "A sales person will contact you");
 
+    public static final BusinessException CREDIT_LINE_REJECTED = new BusinessException(ErrorCode.REJECTED,
+            "The credit Line could not be approved");
+
     public BusinessException(ErrorCode errorCode, String message){
+        super(message, null, false, false);
         this.errorCode = errorCode;
         this.message = message;
+        this.payload = ErrorPayload.of(errorCode, message);
     }
 
     @Override
@@ -21,4 +31,8 @@ public class BusinessException extends RuntimeException{
     public ErrorCode getErrorCode(){
         return this.errorCode;
     }
+
+    public ErrorPayload getPayload(){
+        return this.payload;
+    }
 }
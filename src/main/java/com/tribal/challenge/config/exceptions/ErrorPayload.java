@@ -0,0 +1,51 @@
+package com.tribal.challenge.config.exceptions;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tribal.challenge.models.enums.ErrorCode;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+
+/**
+ * Error body encoded once into a read-only direct buffer. Every response wraps a duplicate of it, so
+ * writing it neither serializes nor copies anything.
+ */
+public final class ErrorPayload {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ByteBuffer body;
+
+    private ErrorPayload(ByteBuffer body) {
+        this.body = body;
+    }
+
+    public static ErrorPayload of(ErrorCode errorCode, String message){
+        var fields = new LinkedHashMap<String, Object>();
+        fields.put("errorCode", errorCode.name());
+        fields.put("message", message);
+
+        try {
+            var bytes = MAPPER.writeValueAsBytes(fields);
+            var body = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+            return new ErrorPayload(body.asReadOnlyBuffer());
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Error body could not be encoded", ex);
+        }
+    }
+
+    public DataBuffer asDataBuffer(DataBufferFactory bufferFactory){
+        return bufferFactory.wrap(body.duplicate());
+    }
+
+    public BodyInserter<ErrorPayload, ReactiveHttpOutputMessage> inserter(){
+        return (message, context) -> message.writeWith(Mono.fromSupplier(() -> asDataBuffer(message.bufferFactory())));
+    }
+}
@@ -3,6 +3,7 @@ package com.tribal.challenge.config.exceptions;
 import com.tribal.challenge.models.enums.ErrorCode;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.ServerResponse;
@@ -20,7 +21,8 @@ public class GeneralErrorHandler {
 
             return ServerResponse
                     .badRequest()
-                    .body(BodyInserters.fromValue(errorBody(exception.getErrorCode(), exception.getMessage())));
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(exception.getPayload().inserter());
         } else if(throwable instanceof IllegalArgumentException) {
             var exception = (IllegalArgumentException) throwable;
 
@@ -30,11 +32,14 @@ public class GeneralErrorHandler {
 
         } else if(throwable instanceof RuntimeException) {
             var exception = (RuntimeException) throwable;
+            log.error("Unexpected error processing the request.", exception);
 
             return ServerResponse
                     .badRequest()
                     .body(BodyInserters.fromValue(errorBody(ErrorCode.GENERAL_ERROR, exception.getMessage())));
         } else {
+            log.error("Unexpected error processing the request.", throwable);
+
             return ServerResponse
                     .status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(BodyInserters.fromValue(generalErrorBody("General Error please try later....")));
@@ -1,12 +1,19 @@
 package com.tribal.challenge.controllers;
 
+import com.google.common.hash.Hashing;
 import com.tribal.challenge.config.exceptions.GeneralErrorHandler;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditEvaluationView;
 import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.CreditRequestView;
 import com.tribal.challenge.services.CreditLineService;
+import com.tribal.challenge.services.IdempotencyCache;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
@@ -15,33 +22,90 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 
 @Slf4j
 @Configuration
 @AllArgsConstructor
 public class CreditLineController {
+    public static final String CREDITS_PATH = "/v1/credits";
+
     private final CreditLineService creditLineService;
     private final GeneralErrorHandler errorHandler;
+    private final IdempotencyCache idempotencyCache;
 
     @Bean
     public RouterFunction<ServerResponse> creditLineRoutes(){
         return RouterFunctions.route()
-                .POST("/v1/credits", this::requestCreditLine)
+                .POST(CREDITS_PATH, this::requestCreditLine)
+                .POST(CREDITS_PATH + "/batch", this::evaluateCreditLines)
+                .GET(CREDITS_PATH + "/{id}", this::retrieveCreditLine)
                 .build();
     }
 
     private Mono<ServerResponse> requestCreditLine(ServerRequest serverRequest) {
-        var clientIp = serverRequest.exchange()
+        var client = ClientKey.of(serverRequest.exchange()
                 .getRequest()
                 .getRemoteAddress()
-                .getAddress()
-                .getHostAddress();
+                .getAddress());
 
-        return serverRequest.bodyToMono(CreditRequestData.class)
-                .flatMap(it -> creditLineService.requestCreditLine(it, clientIp))
-                .flatMap(it -> ServerResponse.created(URI.create("/v1/credits/" + it.getId()))
+        var idempotencyKey = serverRequest.headers().asHttpHeaders().getFirst(IdempotencyCache.HEADER);
+        var creditLine = idempotencyKey == null
+                ? requestCreditLine(serverRequest, client)
+                : idempotencyCache.execute(client, idempotencyKey, () -> requestCreditLine(serverRequest, client));
+
+        return creditLine
+                .flatMap(it -> ServerResponse.created(URI.create(CREDITS_PATH + "/" + it.getId()))
                         .body(BodyInserters.fromValue(it))
                 )
                 .onErrorResume(errorHandler::errorResponse);
     }
+
+    private Mono<CreditRequestView> requestCreditLine(ServerRequest serverRequest, ClientKey client) {
+        return serverRequest.bodyToMono(CreditRequestData.class)
+                .flatMap(it -> creditLineService.requestCreditLine(it, client));
+    }
+
+    private Mono<ServerResponse> retrieveCreditLine(ServerRequest serverRequest) {
+        return creditLineService.retrieveCreditLineById(serverRequest.pathVariable("id"))
+                .flatMap(it -> {
+                    var eTag = eTag(it);
+
+                    if(serverRequest.exchange().checkNotModified(eTag)){
+                        return ServerResponse.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                    }
+
+                    return ServerResponse.ok().eTag(eTag).body(BodyInserters.fromValue(it));
+                })
+                .switchIfEmpty(Mono.defer(() -> ServerResponse.notFound().build()))
+                .onErrorResume(errorHandler::errorResponse);
+    }
+
+    // Credit lines are never updated, but the tag follows every field in case they ever are. The id keeps tags of
+    // different credit lines apart, the digest tells the versions of the same one apart.
+    private static String eTag(CreditRequestView creditLine){
+        var digest = Hashing.sha256()
+                .newHasher()
+                .putString(String.valueOf(creditLine.getStatus()), StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putDouble(creditLine.getCreditLine())
+                .putString(String.valueOf(creditLine.getCreatedAt()), StandardCharsets.UTF_8)
+                .hash();
+
+        return "\"" + creditLine.getId() + "-" + digest + "\"";
+    }
+
+    private Mono<ServerResponse> evaluateCreditLines(ServerRequest serverRequest) {
+        var client = ClientKey.of(serverRequest.exchange()
+                .getRequest()
+                .getRemoteAddress()
+                .getAddress());
+
+        // NDJSON and JSON array bodies are both decoded one element at a time, as the evaluations ask for more.
+        var requests = serverRequest.bodyToFlux(CreditRequestData.class);
+
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(creditLineService.evaluateCreditLines(requests, client), CreditEvaluationView.class);
+    }
 }
@@ -0,0 +1,300 @@
+package com.tribal.challenge.models;
+
+import com.google.common.net.InetAddresses;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Identity of a client, its IP address in binary form: an IPv4 address is a single int and an IPv6 address
+ * two longs, with no string behind them. Values that are not an IP address are kept as they are.
+ * {@link #toString()} gives the same text as {@link InetAddress#getHostAddress()}, which is what stores
+ * written before this class existed used as key. The /24 or /64 network of an address is a key of its
+ * own, never equal to the key of an address. {@link #writeTo(DataOutput)} gives a compact binary form,
+ * one type byte followed by the address.
+ */
+public abstract class ClientKey {
+
+    private static final byte IPV4 = 1;
+    private static final byte IPV6 = 2;
+    private static final byte OPAQUE = 3;
+    private static final byte IPV4_SUBNET = 4;
+    private static final byte IPV6_SUBNET = 5;
+
+    private ClientKey() {
+    }
+
+    public static ClientKey of(InetAddress address){
+        var bytes = address.getAddress();
+
+        if(address instanceof Inet4Address){
+            return new Ipv4(readInt(bytes, 0));
+        }
+
+        return new Ipv6(readLong(bytes, 0), readLong(bytes, 8));
+    }
+
+    public static ClientKey of(String value){
+        if(InetAddresses.isInetAddress(value)){
+            return of(InetAddresses.forString(value));
+        }
+
+        return new Opaque(value);
+    }
+
+    /**
+     * Reads a key written by {@link #writeTo(DataOutput)}.
+     */
+    public static ClientKey readFrom(DataInput in) throws IOException {
+        var type = in.readByte();
+
+        switch (type){
+            case IPV4:
+                return new Ipv4(in.readInt());
+            case IPV6:
+                return new Ipv6(in.readLong(), in.readLong());
+            case OPAQUE:
+                return new Opaque(in.readUTF());
+            case IPV4_SUBNET:
+                return new Ipv4Subnet(in.readInt());
+            case IPV6_SUBNET:
+                return new Ipv6Subnet(in.readLong());
+            default:
+                throw new IOException("Unknown client key type " + type);
+        }
+    }
+
+    public abstract void writeTo(DataOutput out) throws IOException;
+
+    /**
+     * Network the client belongs to, the /24 of an IPv4 address or the /64 of an IPv6 address. Null when
+     * the client is not an IP address or is already a network.
+     */
+    public ClientKey subnet(){
+        return null;
+    }
+
+    public boolean isIpv4(){
+        return false;
+    }
+
+    public boolean isSubnet(){
+        return false;
+    }
+
+    private static int readInt(byte[] bytes, int offset){
+        return (bytes[offset] & 0xFF) << 24
+                | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8
+                | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] bytes, int offset){
+        return (long) readInt(bytes, offset) << 32 | readInt(bytes, offset + 4) & 0xFFFFFFFFL;
+    }
+
+    private static String ipv4ToString(int address){
+        return (address >>> 24) + "." + (address >>> 16 & 0xFF) + "." + (address >>> 8 & 0xFF) + "." + (address & 0xFF);
+    }
+
+    private static String ipv6ToString(long high, long low){
+        var bytes = new byte[16];
+        for(var i = 0; i < 8; i++){
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (low >>> (56 - 8 * i));
+        }
+
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static final class Ipv4 extends ClientKey {
+        private final int address;
+
+        private Ipv4(int address) {
+            this.address = address;
+        }
+
+        @Override
+        public ClientKey subnet() {
+            return new Ipv4Subnet(address & 0xFFFFFF00);
+        }
+
+        @Override
+        public boolean isIpv4() {
+            return true;
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeByte(IPV4);
+            out.writeInt(address);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Ipv4 && ((Ipv4) other).address == address;
+        }
+
+        @Override
+        public int hashCode() {
+            return address * 0x9E3779B9;
+        }
+
+        @Override
+        public String toString() {
+            return ipv4ToString(address);
+        }
+    }
+
+    private static final class Ipv4Subnet extends ClientKey {
+        private final int network;
+
+        private Ipv4Subnet(int network) {
+            this.network = network;
+        }
+
+        @Override
+        public boolean isIpv4() {
+            return true;
+        }
+
+        @Override
+        public boolean isSubnet() {
+            return true;
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeByte(IPV4_SUBNET);
+            out.writeInt(network);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Ipv4Subnet && ((Ipv4Subnet) other).network == network;
+        }
+
+        @Override
+        public int hashCode() {
+            return network * 0x9E3779B9 + 24;
+        }
+
+        @Override
+        public String toString() {
+            return ipv4ToString(network) + "/24";
+        }
+    }
+
+    private static final class Ipv6 extends ClientKey {
+        private final long high;
+        private final long low;
+
+        private Ipv6(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public ClientKey subnet() {
+            return new Ipv6Subnet(high);
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeByte(IPV6);
+            out.writeLong(high);
+            out.writeLong(low);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(!(other instanceof Ipv6)){
+                return false;
+            }
+
+            var key = (Ipv6) other;
+            return key.high == high && key.low == low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high * 0x9E3779B97F4A7C15L ^ low);
+        }
+
+        @Override
+        public String toString() {
+            return ipv6ToString(high, low);
+        }
+    }
+
+    private static final class Ipv6Subnet extends ClientKey {
+        private final long network;
+
+        private Ipv6Subnet(long network) {
+            this.network = network;
+        }
+
+        @Override
+        public boolean isSubnet() {
+            return true;
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeByte(IPV6_SUBNET);
+            out.writeLong(network);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Ipv6Subnet && ((Ipv6Subnet) other).network == network;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(network * 0x9E3779B97F4A7C15L) + 64;
+        }
+
+        @Override
+        public String toString() {
+            return ipv6ToString(network, 0) + "/64";
+        }
+    }
+
+    private static final class Opaque extends ClientKey {
+        private final String value;
+
+        private Opaque(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public void writeTo(DataOutput out) throws IOException {
+            out.writeByte(OPAQUE);
+            out.writeUTF(value);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Opaque && ((Opaque) other).value.equals(value);
+        }
+
+        @Override
+        public int hashCode() {
+            return value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return value;
+        }
+    }
+}
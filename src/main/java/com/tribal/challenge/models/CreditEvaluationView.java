@@ -0,0 +1,44 @@
+package com.tribal.challenge.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.tribal.challenge.config.exceptions.BusinessException;
+import com.tribal.challenge.models.enums.ErrorCode;
+import lombok.Data;
+
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CreditEvaluationView {
+    private long index;
+    private String status;
+    private Double creditLine;
+    private String errorCode;
+    private String message;
+
+    public static CreditEvaluationView approved(long index, CreditRequestData creditRequestData){
+        var evaluation = new CreditEvaluationView();
+        evaluation.setIndex(index);
+        evaluation.setStatus("APPROVED");
+        evaluation.setCreditLine(creditRequestData.getRequestedCreditLine());
+
+        return evaluation;
+    }
+
+    public static CreditEvaluationView rejected(long index, Throwable throwable){
+        ErrorCode errorCode;
+        if(throwable instanceof BusinessException){
+            errorCode = ((BusinessException) throwable).getErrorCode();
+        } else if(throwable instanceof IllegalArgumentException){
+            errorCode = ErrorCode.VALIDATION;
+        } else {
+            errorCode = ErrorCode.GENERAL_ERROR;
+        }
+
+        var evaluation = new CreditEvaluationView();
+        evaluation.setIndex(index);
+        evaluation.setStatus("REJECTED");
+        evaluation.setErrorCode(errorCode.name());
+        evaluation.setMessage(throwable.getMessage());
+
+        return evaluation;
+    }
+}
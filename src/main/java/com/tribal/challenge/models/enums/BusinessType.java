@@ -1,9 +1,21 @@
 package com.tribal.challenge.models.enums;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 public enum BusinessType {
     STARTUP("startup"),
     SME("SME");
 
+    private static final Map<String, BusinessType> BY_NAME = new HashMap<>();
+
+    static {
+        for(var bt: BusinessType.values()){
+            BY_NAME.put(bt.name.toLowerCase(Locale.ROOT), bt);
+        }
+    }
+
     String name;
 
     BusinessType(String name) {
@@ -11,22 +23,24 @@ public enum BusinessType {
     }
 
     public static boolean isValid(String businessType){
-        for(var bt: BusinessType.values()){
-            if(bt.name.equalsIgnoreCase(businessType)){
-                return true;
-            }
+        return lookup(businessType) != null;
+    }
+
+    public static BusinessType of(String businessType){
+        var bt = lookup(businessType);
+        if(bt == null){
+            throw new RuntimeException("Not valid BusinessType");
         }
 
-        return  false;
+        return bt;
     }
 
-    public static BusinessType of(String businessType){
-        for(var bt: BusinessType.values()){
-            if(bt.name.equalsIgnoreCase(businessType)){
-                return bt;
-            }
+    private static BusinessType lookup(String businessType){
+        if(businessType == null){
+            return null;
         }
 
-        throw new RuntimeException("Not valid BusinessType");
+        // toLowerCase returns the same instance when there is nothing to change, so lower case names do not allocate.
+        return BY_NAME.get(businessType.toLowerCase(Locale.ROOT));
     }
 }
@@ -3,6 +3,8 @@ package com.tribal.challenge.models.enums;
 public enum ErrorCode {
     VALIDATION,
     REJECTED,
+    RATE_LIMITED,
+    OVERLOADED,
     INTERNAL_ERROR,
     GENERAL_ERROR
 }
@@ -1,11 +1,25 @@
 package com.tribal.challenge.repository;
 
+import com.tribal.challenge.models.ClientKey;
 import com.tribal.challenge.models.CreditRequestData;
 import com.tribal.challenge.models.CreditRequestView;
 import reactor.core.publisher.Mono;
 
 public interface CreditLineRepository {
-    Mono<CreditRequestView> retrieveCreditLine(String ip);
-    Mono<Boolean> alreadyHasCreditLine(String ip);
-    Mono<CreditRequestView> saveCreditRequest(CreditRequestData creditRequestData, String ip);
+    Mono<CreditRequestView> retrieveCreditLine(ClientKey client);
+    Mono<Boolean> alreadyHasCreditLine(ClientKey client);
+    Mono<CreditRequestView> saveCreditRequest(CreditRequestData creditRequestData, ClientKey client);
+    Mono<CreditRequestView> retrieveCreditLineById(String id);
+
+    default Mono<CreditRequestView> retrieveCreditLine(String ip){
+        return retrieveCreditLine(ClientKey.of(ip));
+    }
+
+    default Mono<Boolean> alreadyHasCreditLine(String ip){
+        return alreadyHasCreditLine(ClientKey.of(ip));
+    }
+
+    default Mono<CreditRequestView> saveCreditRequest(CreditRequestData creditRequestData, String ip){
+        return saveCreditRequest(creditRequestData, ClientKey.of(ip));
+    }
 }
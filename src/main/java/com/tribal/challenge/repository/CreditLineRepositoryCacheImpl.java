@@ -0,0 +1,129 @@
+package com.tribal.challenge.repository;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.CreditRequestView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Read-through cache in front of the repository selected by the active profile. Clients without a credit
+ * line are cached too, with a shorter TTL, since they are most of the lookups. Credit lines are also cached by
+ * id for the lookups of a single credit line.
+ */
+@Slf4j
+@Primary
+@Repository
+@ConditionalOnProperty(name = "configs.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CreditLineRepositoryCacheImpl implements CreditLineRepository {
+
+    private final CreditLineRepository delegate;
+    private final Cache<ClientKey, CreditRequestView> creditLines;
+    private final Cache<ClientKey, Boolean> missingCreditLines;
+    private final Cache<String, CreditRequestView> creditLinesById;
+
+    // Spring skips this bean when resolving its own dependency, the delegate is the profile repository.
+    public CreditLineRepositoryCacheImpl(CreditLineRepository delegate,
+                                         @Value("${configs.cache.max-size:100000}") long maxSize,
+                                         @Value("${configs.cache.ttl.seconds:300}") long ttl,
+                                         @Value("${configs.cache.negative-ttl.seconds:5}") long negativeTtl) {
+        this.delegate = delegate;
+        this.creditLines = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttl))
+                .recordStats()
+                .build();
+        this.missingCreditLines = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(negativeTtl))
+                .recordStats()
+                .build();
+        this.creditLinesById = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttl))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Mono<CreditRequestView> retrieveCreditLine(ClientKey client) {
+        var cached = creditLines.getIfPresent(client);
+        if(cached != null){
+            return Mono.just(cached);
+        }
+
+        if(missingCreditLines.getIfPresent(client) != null){
+            return Mono.empty();
+        }
+
+        return delegate.retrieveCreditLine(client)
+                .doOnNext(it -> {
+                    creditLines.put(client, it);
+                    creditLinesById.put(it.getId(), it);
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> missingCreditLines.put(client, Boolean.TRUE)));
+    }
+
+    @Override
+    public Mono<Boolean> alreadyHasCreditLine(ClientKey client) {
+        if(creditLines.getIfPresent(client) != null){
+            return Mono.just(true);
+        }
+
+        if(missingCreditLines.getIfPresent(client) != null){
+            return Mono.just(false);
+        }
+
+        return delegate.alreadyHasCreditLine(client);
+    }
+
+    @Override
+    public Mono<CreditRequestView> saveCreditRequest(CreditRequestData creditRequestData, ClientKey client) {
+        return delegate.saveCreditRequest(creditRequestData, client)
+                .doOnNext(it -> {
+                    creditLines.put(client, it);
+                    creditLinesById.put(it.getId(), it);
+                    missingCreditLines.invalidate(client);
+                });
+    }
+
+    @Override
+    public Mono<CreditRequestView> retrieveCreditLineById(String id) {
+        var cached = creditLinesById.getIfPresent(id);
+        if(cached != null){
+            return Mono.just(cached);
+        }
+
+        return delegate.retrieveCreditLineById(id)
+                .doOnNext(it -> creditLinesById.put(id, it));
+    }
+
+    public Cache<ClientKey, CreditRequestView> creditLines(){
+        return creditLines;
+    }
+
+    public Cache<ClientKey, Boolean> missingCreditLines(){
+        return missingCreditLines;
+    }
+
+    public Cache<String, CreditRequestView> creditLinesById(){
+        return creditLinesById;
+    }
+
+    public CacheStats creditLineStats(){
+        return creditLines.stats();
+    }
+
+    public CacheStats missingCreditLineStats(){
+        return missingCreditLines.stats();
+    }
+}
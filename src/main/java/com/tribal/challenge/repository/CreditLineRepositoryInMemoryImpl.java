@@ -1,48 +1,62 @@
 package com.tribal.challenge.repository;
 
+import com.tribal.challenge.models.ClientKey;
 import com.tribal.challenge.models.CreditRequestData;
 import com.tribal.challenge.models.CreditRequestView;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Mono;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Slf4j
 @Repository
+@Profile("!mapped-log & !r2dbc")
 public class CreditLineRepositoryInMemoryImpl implements CreditLineRepository{
 
-    private final Map<String, CreditRequestView> storage;
+    // ConcurrentHashMap locks per bin, so writes from different event loops only contend on the same client.
+    private final ConcurrentMap<ClientKey, CreditRequestView> storage;
+    private final ConcurrentMap<String, CreditRequestView> storageById;
 
     public CreditLineRepositoryInMemoryImpl() {
-        this.storage = new HashMap<>();
+        this.storage = new ConcurrentHashMap<>();
+        this.storageById = new ConcurrentHashMap<>();
     }
 
     @Override
-    public Mono<CreditRequestView> retrieveCreditLine(String ip) {
-        log.info("Retrieving credit line for user {} from memory....", ip);
+    public Mono<CreditRequestView> retrieveCreditLine(ClientKey client) {
+        log.debug("Retrieving credit line for user {} from memory....", client);
 
-        if(!storage.containsKey(ip)){
-            log.info("Credit line not found.");
+        var creditLine = storage.get(client);
+        if(creditLine == null){
+            log.debug("Credit line not found.");
             return Mono.empty();
         }
 
-        return Mono.just(storage.get(ip));
+        return Mono.just(creditLine);
     }
 
     @Override
-    public Mono<Boolean> alreadyHasCreditLine(String ip) {
-        return Mono.just(storage.containsKey(ip));
+    public Mono<Boolean> alreadyHasCreditLine(ClientKey client) {
+        return Mono.just(storage.containsKey(client));
     }
 
     @Override
-    public Mono<CreditRequestView> saveCreditRequest(CreditRequestData creditRequestData, String ip) {
-        log.info("Saving credit request in memory....");
-
-        var auxCredit = CreditRequestView.of(creditRequestData);
-        storage.put(ip, auxCredit);
+    public Mono<CreditRequestView> saveCreditRequest(CreditRequestData creditRequestData, ClientKey client) {
+        log.debug("Saving credit request in memory....");
+
+        // A client only ever gets one credit line, concurrent duplicates receive the one stored first.
+        return Mono.just(storage.computeIfAbsent(client, it -> {
+            var creditLine = CreditRequestView.of(creditRequestData);
+            storageById.put(creditLine.getId(), creditLine);
+            return creditLine;
+        }));
+    }
 
-        return Mono.just(auxCredit);
+    @Override
+    public Mono<CreditRequestView> retrieveCreditLineById(String id) {
+        return Mono.justOrEmpty(storageById.get(id));
     }
 }
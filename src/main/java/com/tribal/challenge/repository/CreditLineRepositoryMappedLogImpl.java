@@ -0,0 +1,529 @@
+package com.tribal.challenge.repository;
+
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.CreditRequestView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Credit lines appended to memory mapped segment files, with in-memory indexes from client and from credit line id
+ * to record position.
+ * <p>
+ * Record layout: length (int) | crc32 of the payload (int) | payload, where the payload is
+ * type (byte) | client (short length + utf8) | id (2 longs) | status (short length + utf8) |
+ * credit line (double) | created at epoch seconds (long) | nanos (int). A zero length marks the end of a segment.
+ * <p>
+ * Appends run on a single writer thread, so checking the index and appending is atomic. A flusher thread
+ * forces the dirty segments every {@code fsync-interval.millis} and only then completes the saves written
+ * since the previous flush, or fails them and drops them from the indexes when a segment cannot be forced. On
+ * startup the segments are scanned, and a torn record at the tail is discarded.
+ * <p>
+ * A client only ever gets one credit line, so running appends never supersede a record. Dead records only come from
+ * the segments found on startup, when a client has more than one record, and compaction runs once right after they
+ * are scanned.
+ */
+@Slf4j
+@Repository
+@Profile("mapped-log")
+public class CreditLineRepositoryMappedLogImpl implements CreditLineRepository {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+    private static final byte CREDIT_LINE_RECORD = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final Path DIRECTORY;
+    private final int SEGMENT_SIZE;
+    private final double COMPACTION_RATIO;
+
+    private final ConcurrentMap<ClientKey, Long> index;
+    private final ConcurrentMap<UUID, Long> idIndex;
+    private final ConcurrentNavigableMap<Integer, Segment> segments;
+    private final Queue<PendingWrite> pendingWrites;
+
+    private final Scheduler writer;
+    private final Scheduler flusher;
+
+    // Only touched by the writer thread once the log is recovered and compacted.
+    private Segment activeSegment;
+    private volatile long appendedSequence;
+    private volatile long durableSequence;
+
+    public CreditLineRepositoryMappedLogImpl(@Value("${configs.repository.mapped-log.directory:data/credit-lines}") String directory,
+                                             @Value("${configs.repository.mapped-log.segment-size.kb:65536}") int segmentSize,
+                                             @Value("${configs.repository.mapped-log.fsync-interval.millis:10}") long fsyncInterval,
+                                             @Value("${configs.repository.mapped-log.compaction-ratio:0.5}") double compactionRatio) {
+        this.DIRECTORY = Paths.get(directory);
+        this.SEGMENT_SIZE = segmentSize * 1024;
+        this.COMPACTION_RATIO = compactionRatio;
+
+        this.index = new ConcurrentHashMap<>();
+        this.idIndex = new ConcurrentHashMap<>();
+        this.segments = new ConcurrentSkipListMap<>();
+        this.pendingWrites = new ConcurrentLinkedQueue<>();
+
+        recover();
+        compact();
+
+        this.writer = Schedulers.newSingle("credit-line-log-writer", true);
+        this.flusher = Schedulers.newSingle("credit-line-log-flusher", true);
+        this.flusher.schedulePeriodically(this::flush, fsyncInterval, fsyncInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<CreditRequestView> retrieveCreditLine(ClientKey client) {
+        return Mono.justOrEmpty(lookup(client));
+    }
+
+    @Override
+    public Mono<Boolean> alreadyHasCreditLine(ClientKey client) {
+        return Mono.just(index.containsKey(client));
+    }
+
+    @Override
+    public Mono<CreditRequestView> saveCreditRequest(CreditRequestData creditRequestData, ClientKey client) {
+        return Mono.create(sink -> writer.schedule(() -> append(creditRequestData, client, sink)));
+    }
+
+    @Override
+    public Mono<CreditRequestView> retrieveCreditLineById(String id) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException ex) {
+            return Mono.empty();
+        }
+
+        return Mono.justOrEmpty(lookup(idIndex, uuid));
+    }
+
+    private void append(CreditRequestData creditRequestData, ClientKey client, MonoSink<CreditRequestView> sink){
+        try {
+            // A client only ever gets one credit line, duplicates receive the one stored first.
+            var existing = lookup(client);
+            if(existing != null){
+                sink.success(existing);
+                return;
+            }
+
+            var view = CreditRequestView.of(creditRequestData);
+            var position = write(client, view);
+
+            index.put(client, position);
+            idIndex.put(UUID.fromString(view.getId()), position);
+
+            // Queued before the sequence is published, a flush reaching this sequence always finds the write.
+            var sequence = appendedSequence + 1;
+            pendingWrites.add(new PendingWrite(sequence, client, position, view, sink));
+            appendedSequence = sequence;
+        } catch (RuntimeException ex) {
+            log.error("Failed to append credit line for user {}.", client, ex);
+            sink.error(ex);
+        }
+    }
+
+    private long write(ClientKey client, CreditRequestView view){
+        var key = client.toString().getBytes(StandardCharsets.UTF_8);
+        var status = view.getStatus().getBytes(StandardCharsets.UTF_8);
+        var payloadSize = 1 + 2 + key.length + 16 + 2 + status.length + 8 + 8 + 4;
+
+        var segment = reserve(HEADER_SIZE + payloadSize);
+        var offset = segment.writePosition;
+        var buffer = segment.buffer.duplicate();
+        var id = UUID.fromString(view.getId());
+
+        buffer.position(offset + HEADER_SIZE);
+        buffer.put(CREDIT_LINE_RECORD);
+        buffer.putShort((short) key.length).put(key);
+        buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+        buffer.putShort((short) status.length).put(status);
+        buffer.putDouble(view.getCreditLine());
+
+        if(view.getCreatedAt() == null){
+            buffer.putLong(NO_DATE).putInt(0);
+        } else {
+            buffer.putLong(view.getCreatedAt().toEpochSecond(ZoneOffset.UTC)).putInt(view.getCreatedAt().getNano());
+        }
+
+        sealRecord(segment, offset, payloadSize);
+
+        return position(segment.id, offset);
+    }
+
+    // Writes the header once the payload is in place, a partially written record fails its checksum.
+    private void sealRecord(Segment segment, int offset, int payloadSize){
+        segment.buffer.putInt(offset + 4, checksum(segment.buffer, offset + HEADER_SIZE, payloadSize));
+        segment.buffer.putInt(offset, payloadSize);
+        segment.writePosition = offset + HEADER_SIZE + payloadSize;
+        segment.dirty = true;
+    }
+
+    private Segment reserve(int recordSize){
+        if(activeSegment.writePosition + recordSize > activeSegment.buffer.capacity()){
+            activeSegment = openSegment(activeSegment.id + 1, Math.max(SEGMENT_SIZE, recordSize));
+            segments.put(activeSegment.id, activeSegment);
+        }
+
+        return activeSegment;
+    }
+
+    private CreditRequestView lookup(ClientKey client){
+        return lookup(index, client);
+    }
+
+    private <K> CreditRequestView lookup(ConcurrentMap<K, Long> positions, K key){
+        while (true) {
+            var position = positions.get(key);
+            if(position == null){
+                return null;
+            }
+
+            // Compaction moves the record before dropping its segment, a missing segment means a newer position.
+            var segment = segments.get(segmentOf(position));
+            if(segment != null){
+                return read(segment, offsetOf(position));
+            }
+        }
+    }
+
+    private CreditRequestView read(Segment segment, int offset){
+        var buffer = segment.buffer.duplicate();
+
+        buffer.position(offset + HEADER_SIZE + 1);
+        var keyLength = buffer.getShort();
+        buffer.position(buffer.position() + keyLength);
+
+        var view = new CreditRequestView();
+        view.setId(new UUID(buffer.getLong(), buffer.getLong()).toString());
+
+        var status = new byte[buffer.getShort()];
+        buffer.get(status);
+        view.setStatus(new String(status, StandardCharsets.UTF_8));
+        view.setCreditLine(buffer.getDouble());
+
+        var seconds = buffer.getLong();
+        var nanos = buffer.getInt();
+        if(seconds != NO_DATE){
+            view.setCreatedAt(LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC));
+        }
+
+        return view;
+    }
+
+    private void flush(){
+        var target = appendedSequence;
+        if(target == durableSequence){
+            return;
+        }
+
+        for(var segment: segments.values()){
+            if(!segment.dirty){
+                continue;
+            }
+
+            // Cleared before forcing, so an append landing meanwhile marks the segment again.
+            segment.dirty = false;
+            try {
+                segment.buffer.force();
+            } catch (RuntimeException ex) {
+                segment.dirty = true;
+                log.error("Failed to sync segment {} of the credit line log, retrying on next flush.", segment.id, ex);
+
+                // Their records may never reach the disk, the saves waiting for this flush fail and are dropped
+                // from the indexes. On the writer thread, so a save of the same client never gets a dropped one.
+                var failedWrites = new ArrayList<PendingWrite>();
+                completePendingWrites(target, failedWrites::add);
+                writer.schedule(() -> failedWrites.forEach(it -> rollback(it, ex)));
+                return;
+            }
+        }
+
+        durableSequence = target;
+        completePendingWrites(target, it -> it.sink.success(it.view));
+    }
+
+    private void rollback(PendingWrite pendingWrite, RuntimeException ex){
+        index.remove(pendingWrite.client, pendingWrite.position);
+        idIndex.remove(UUID.fromString(pendingWrite.view.getId()), pendingWrite.position);
+        pendingWrite.sink.error(ex);
+    }
+
+    private void completePendingWrites(long target, Consumer<PendingWrite> completion){
+        PendingWrite pendingWrite;
+        while ((pendingWrite = pendingWrites.peek()) != null && pendingWrite.sequence <= target) {
+            pendingWrites.poll();
+            completion.accept(pendingWrite);
+        }
+    }
+
+    private void recover(){
+        var start = System.currentTimeMillis();
+
+        try {
+            Files.createDirectories(DIRECTORY);
+
+            try (var files = Files.list(DIRECTORY)) {
+                var ids = files.map(it -> it.getFileName().toString())
+                        .filter(it -> it.startsWith(SEGMENT_PREFIX) && it.endsWith(SEGMENT_SUFFIX))
+                        .map(it -> Integer.parseInt(it.substring(SEGMENT_PREFIX.length(), it.length() - SEGMENT_SUFFIX.length())))
+                        .sorted()
+                        .collect(Collectors.toList());
+
+                for(var id: ids){
+                    var segment = openSegment(id, SEGMENT_SIZE);
+                    scan(segment);
+                    segments.put(id, segment);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to recover credit line log from " + DIRECTORY, ex);
+        }
+
+        if(segments.isEmpty()){
+            segments.put(1, openSegment(1, SEGMENT_SIZE));
+        }
+        activeSegment = segments.lastEntry().getValue();
+
+        log.info("Recovered {} credit lines from {} segments in {} ms.",
+                index.size(), segments.size(), System.currentTimeMillis() - start);
+    }
+
+    private void scan(Segment segment){
+        var buffer = segment.buffer;
+        var offset = 0;
+
+        while (offset + HEADER_SIZE <= buffer.capacity()) {
+            var payloadSize = buffer.getInt(offset);
+            if(payloadSize == 0){
+                break;
+            }
+
+            if(payloadSize < 0 || offset + HEADER_SIZE + payloadSize > buffer.capacity()
+                    || buffer.getInt(offset + 4) != checksum(buffer, offset + HEADER_SIZE, payloadSize)){
+                log.warn("Discarding torn record at offset {} of segment {}.", offset, segment.id);
+                clear(buffer, offset);
+                break;
+            }
+
+            var position = position(segment.id, offset);
+            if(index.putIfAbsent(readKey(buffer, offset), position) == null){
+                idIndex.put(readId(buffer, offset), position);
+            } else {
+                segment.deadBytes += HEADER_SIZE + payloadSize;
+            }
+
+            offset += HEADER_SIZE + payloadSize;
+        }
+
+        segment.writePosition = offset;
+    }
+
+    private void compact(){
+        for(var segment: segments.values()){
+            if(segment != activeSegment && segment.deadBytes > segment.writePosition * COMPACTION_RATIO){
+                compact(segment);
+            }
+        }
+    }
+
+    // Copies the records still referenced by the index to the active segment and drops the old file.
+    private void compact(Segment segment){
+        try {
+            var buffer = segment.buffer;
+            var offset = 0;
+            var moved = 0;
+
+            while (offset < segment.writePosition) {
+                var payloadSize = buffer.getInt(offset);
+                var key = readKey(buffer, offset);
+                var position = position(segment.id, offset);
+
+                if(Long.valueOf(position).equals(index.get(key))){
+                    var target = reserve(HEADER_SIZE + payloadSize);
+                    var targetOffset = target.writePosition;
+                    var source = buffer.duplicate();
+                    source.position(offset + HEADER_SIZE).limit(offset + HEADER_SIZE + payloadSize);
+
+                    target.buffer.duplicate().position(targetOffset + HEADER_SIZE).put(source);
+                    sealRecord(target, targetOffset, payloadSize);
+                    index.replace(key, position, position(target.id, targetOffset));
+                    idIndex.replace(readId(buffer, offset), position, position(target.id, targetOffset));
+                    moved++;
+                }
+
+                offset += HEADER_SIZE + payloadSize;
+            }
+
+            // The records may have rolled over to a new segment, the one active before has to be forced too.
+            for(var it: segments.values()){
+                if(it.dirty){
+                    it.buffer.force();
+                }
+            }
+            segments.remove(segment.id);
+            Files.deleteIfExists(segmentPath(segment.id));
+
+            log.info("Compacted segment {}, {} credit lines moved.", segment.id, moved);
+        } catch (IOException | RuntimeException ex) {
+            log.error("Failed to compact segment {}.", segment.id, ex);
+        }
+    }
+
+    private Segment openSegment(int id, int size){
+        var path = segmentPath(id);
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Keep the size of existing segments, the configured size may have changed since they were written.
+            var mappedSize = Math.max(size, (int) channel.size());
+
+            return new Segment(id, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedSize));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to open credit line segment " + path, ex);
+        }
+    }
+
+    private Path segmentPath(int id){
+        return DIRECTORY.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static ClientKey readKey(ByteBuffer buffer, int offset){
+        var key = new byte[buffer.getShort(offset + HEADER_SIZE + 1)];
+        buffer.duplicate().position(offset + HEADER_SIZE + 3).get(key);
+
+        return ClientKey.of(new String(key, StandardCharsets.UTF_8));
+    }
+
+    private static UUID readId(ByteBuffer buffer, int offset){
+        var idOffset = offset + HEADER_SIZE + 3 + buffer.getShort(offset + HEADER_SIZE + 1);
+
+        return new UUID(buffer.getLong(idOffset), buffer.getLong(idOffset + 8));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length){
+        var crc = new CRC32();
+        crc.update(buffer.duplicate().position(offset).limit(offset + length));
+
+        return (int) crc.getValue();
+    }
+
+    private static void clear(ByteBuffer buffer, int offset){
+        var zeros = new byte[8192];
+        var target = buffer.duplicate().position(offset);
+
+        while (target.hasRemaining()) {
+            target.put(zeros, 0, Math.min(zeros.length, target.remaining()));
+        }
+    }
+
+    private static long position(int segmentId, int offset){
+        return (long) segmentId << 32 | offset;
+    }
+
+    private static int segmentOf(long position){
+        return (int) (position >>> 32);
+    }
+
+    private static int offsetOf(long position){
+        return (int) position;
+    }
+
+    /**
+     * Runs the appends already queued, completes them with a last flush and only then stops the threads. The writer
+     * is drained once more for the saves that last flush failed.
+     */
+    @PreDestroy
+    public void shutdown(){
+        runAndWait(writer, () -> {});
+        runAndWait(flusher, this::flush);
+        runAndWait(writer, () -> {});
+
+        writer.dispose();
+        flusher.dispose();
+    }
+
+    // Single threaded schedulers run their tasks in order, so once this one runs the previous ones are done.
+    private static void runAndWait(Scheduler scheduler, Runnable task){
+        var done = new CountDownLatch(1);
+        scheduler.schedule(() -> {
+            try {
+                task.run();
+            } finally {
+                done.countDown();
+            }
+        });
+
+        try {
+            if(!done.await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)){
+                log.warn("Credit line log still busy after {} seconds, stopping it anyway.", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Segment {
+        private final int id;
+        private final MappedByteBuffer buffer;
+        private volatile boolean dirty;
+        private int writePosition;
+        private long deadBytes;
+
+        private Segment(int id, MappedByteBuffer buffer) {
+            this.id = id;
+            this.buffer = buffer;
+        }
+    }
+
+    private static class PendingWrite {
+        private final long sequence;
+        private final ClientKey client;
+        private final long position;
+        private final CreditRequestView view;
+        private final MonoSink<CreditRequestView> sink;
+
+        private PendingWrite(long sequence, ClientKey client, long position, CreditRequestView view,
+                             MonoSink<CreditRequestView> sink) {
+            this.sequence = sequence;
+            this.client = client;
+            this.position = position;
+            this.view = view;
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.tribal.challenge.repository;
+
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.CreditRequestView;
+import io.r2dbc.spi.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Credit lines stored through R2DBC. Saves are buffered for up to {@code batch-delay.millis} and written as
+ * multi-row inserts of at most {@code batch-size} rows. The statement for each batch size is built once, so
+ * drivers with a statement cache keep reusing the same prepared statements.
+ */
+@Slf4j
+@Repository
+@Profile("r2dbc")
+public class CreditLineRepositoryR2dbcImpl implements CreditLineRepository {
+
+    private static final String SELECT_BY_CLIENT = "SELECT id, status, credit_line, created_at FROM credit_line WHERE client = :client";
+    private static final String SELECT_BY_ID = "SELECT id, status, credit_line, created_at FROM credit_line WHERE id = :id";
+    private static final String INSERT = "INSERT INTO credit_line (client, id, status, credit_line, created_at) VALUES ";
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    // Saves come from several event loops, retry until the sink accepts the concurrent emission.
+    private static final Sinks.EmitFailureHandler RETRY_NON_SERIALIZED =
+            (signalType, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED;
+
+    private final DatabaseClient databaseClient;
+    private final String[] insertStatements;
+    private final Sinks.Many<PendingSave> pendingSaves;
+    private final Disposable batchWriter;
+    private final CountDownLatch batchWriterDone;
+
+    public CreditLineRepositoryR2dbcImpl(DatabaseClient databaseClient,
+                                         @Value("${configs.repository.r2dbc.batch-size:32}") int batchSize,
+                                         @Value("${configs.repository.r2dbc.batch-delay.millis:5}") long batchDelay,
+                                         @Value("${configs.repository.r2dbc.batch-concurrency:4}") int batchConcurrency) {
+        this.databaseClient = databaseClient;
+        this.insertStatements = IntStream.rangeClosed(1, batchSize)
+                .mapToObj(CreditLineRepositoryR2dbcImpl::insertStatement)
+                .toArray(String[]::new);
+
+        this.pendingSaves = Sinks.many().unicast().onBackpressureBuffer();
+        this.batchWriterDone = new CountDownLatch(1);
+        this.batchWriter = pendingSaves.asFlux()
+                .bufferTimeout(batchSize, Duration.ofMillis(batchDelay))
+                .flatMap(this::insertBatch, batchConcurrency)
+                .doFinally(signal -> batchWriterDone.countDown())
+                .subscribe();
+    }
+
+    @Override
+    public Mono<CreditRequestView> retrieveCreditLine(ClientKey client) {
+        return findByClient(client.toString());
+    }
+
+    @Override
+    public Mono<Boolean> alreadyHasCreditLine(ClientKey client) {
+        return findByClient(client.toString()).hasElement();
+    }
+
+    @Override
+    public Mono<CreditRequestView> saveCreditRequest(CreditRequestData creditRequestData, ClientKey client) {
+        return Mono.create(sink -> pendingSaves.emitNext(
+                new PendingSave(client.toString(), CreditRequestView.of(creditRequestData), sink), RETRY_NON_SERIALIZED));
+    }
+
+    @Override
+    public Mono<CreditRequestView> retrieveCreditLineById(String id) {
+        // Served by the credit_line_id index.
+        return databaseClient.sql(SELECT_BY_ID)
+                .bind("id", id)
+                .map((row, metadata) -> toView(row))
+                .one();
+    }
+
+    private Mono<Void> insertBatch(List<PendingSave> batch){
+        var statement = databaseClient.sql(insertStatements[batch.size() - 1]);
+        for(var i = 0; i < batch.size(); i++){
+            statement = bindRow(statement, i, batch.get(i));
+        }
+
+        return statement.fetch()
+                .rowsUpdated()
+                .doOnNext(it -> batch.forEach(save -> save.sink.success(save.view)))
+                .then()
+                // Usually a client that already has a credit line, retry one by one so only that row loses.
+                .onErrorResume(ex -> Flux.fromIterable(batch)
+                        .concatMap(this::insertOne)
+                        .then());
+    }
+
+    private Mono<Void> insertOne(PendingSave save){
+        return bindRow(databaseClient.sql(insertStatements[0]), 0, save)
+                .fetch()
+                .rowsUpdated()
+                .map(it -> save.view)
+                // A client only ever gets one credit line, the one stored first wins.
+                .onErrorResume(ex -> findByClient(save.client)
+                        .switchIfEmpty(Mono.error(ex)))
+                .doOnNext(save.sink::success)
+                .doOnError(ex -> {
+                    log.error("Failed to save credit line for user {}.", save.client, ex);
+                    save.sink.error(ex);
+                })
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+
+    private Mono<CreditRequestView> findByClient(String client){
+        return databaseClient.sql(SELECT_BY_CLIENT)
+                .bind("client", client)
+                .map((row, metadata) -> toView(row))
+                .one();
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindRow(DatabaseClient.GenericExecuteSpec statement, int row, PendingSave save){
+        var view = save.view;
+        statement = statement.bind("client" + row, save.client)
+                .bind("id" + row, view.getId())
+                .bind("status" + row, view.getStatus())
+                .bind("creditLine" + row, view.getCreditLine());
+
+        return view.getCreatedAt() == null
+                ? statement.bindNull("createdAt" + row, LocalDateTime.class)
+                : statement.bind("createdAt" + row, view.getCreatedAt());
+    }
+
+    private static CreditRequestView toView(Row row){
+        var view = new CreditRequestView();
+        view.setId(row.get("id", String.class));
+        view.setStatus(row.get("status", String.class));
+        view.setCreditLine(row.get("credit_line", Double.class));
+        view.setCreatedAt(row.get("created_at", LocalDateTime.class));
+
+        return view;
+    }
+
+    private static String insertStatement(int rows){
+        return IntStream.range(0, rows)
+                .mapToObj(row -> String.format("(:client%1$d, :id%1$d, :status%1$d, :creditLine%1$d, :createdAt%1$d)", row))
+                .collect(Collectors.joining(", ", INSERT, ""));
+    }
+
+    /**
+     * Stops taking saves, writes the batch still buffered and waits for the inserts running before stopping the writer.
+     */
+    @PreDestroy
+    public void shutdown(){
+        pendingSaves.tryEmitComplete();
+
+        try {
+            if(!batchWriterDone.await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)){
+                log.warn("Credit line saves still running after {} seconds, stopping them anyway.", SHUTDOWN_TIMEOUT_SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        batchWriter.dispose();
+    }
+
+    private static class PendingSave {
+        private final String client;
+        private final CreditRequestView view;
+        private final MonoSink<CreditRequestView> sink;
+
+        private PendingSave(String client, CreditRequestView view, MonoSink<CreditRequestView> sink) {
+            this.client = client;
+            this.view = view;
+            this.sink = sink;
+        }
+    }
+}
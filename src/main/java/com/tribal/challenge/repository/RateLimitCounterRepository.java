@@ -0,0 +1,12 @@
+package com.tribal.challenge.repository;
+
+import reactor.core.publisher.Mono;
+
+public interface RateLimitCounterRepository {
+
+    /**
+     * Adds {@code delta} to the shared counter {@code key}, which expires {@code ttlMillis} after the increment
+     * that created it, and returns the counter value after the increment.
+     */
+    Mono<Long> incrementBy(String key, long delta, long ttlMillis);
+}
@@ -0,0 +1,64 @@
+package com.tribal.challenge.repository;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Shared counters on a Redis compatible server, through a single Lettuce connection shared by every
+ * request. Lettuce writes the commands without waiting for the replies of the previous ones and
+ * reconnects on its own, so concurrent requests are pipelined and no thread is held while waiting.
+ * <p>
+ * The connection is only built when {@code configs.limits.distributed.enabled} is set, the Redis
+ * auto-configuration of Spring Boot is excluded so nothing connects otherwise.
+ */
+@Repository
+@ConditionalOnProperty(name = "configs.limits.distributed.enabled", havingValue = "true")
+public class RateLimitCounterRepositoryRedisImpl implements RateLimitCounterRepository {
+
+    private final LettuceConnectionFactory connectionFactory;
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    public RateLimitCounterRepositoryRedisImpl(@Value("${configs.limits.distributed.redis.host:localhost}") String host,
+                                               @Value("${configs.limits.distributed.redis.port:6379}") int port,
+                                               @Value("${configs.limits.distributed.timeout.millis:50}") int timeout) {
+        var clientOptions = ClientOptions.builder()
+                .socketOptions(SocketOptions.builder().connectTimeout(Duration.ofMillis(timeout)).build())
+                // Not every Redis compatible store speaks RESP3.
+                .protocolVersion(ProtocolVersion.RESP2)
+                .build();
+        var clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofMillis(timeout))
+                .clientOptions(clientOptions)
+                .build();
+
+        this.connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port), clientConfiguration);
+        this.connectionFactory.afterPropertiesSet();
+        this.redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @Override
+    public Mono<Long> incrementBy(String key, long delta, long ttlMillis) {
+        // Counters are keyed by window, so the expiry is only set once, by the increment that created the key.
+        return redisTemplate.opsForValue().increment(key, delta)
+                .flatMap(total -> total == delta
+                        ? redisTemplate.expire(key, Duration.ofMillis(ttlMillis)).thenReturn(total)
+                        : Mono.just(total));
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        connectionFactory.destroy();
+    }
+}
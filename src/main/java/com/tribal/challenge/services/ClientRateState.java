@@ -0,0 +1,112 @@
+package com.tribal.challenge.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rate limit state of a single client. Block and attempt transitions are compare-and-set operations
+ * and the request window brings its own synchronization, so the record is shared by all event loops.
+ */
+class ClientRateState {
+
+    private static final long NOT_BLOCKED = Long.MIN_VALUE;
+    private static final int LEASE_PERMITS_BITS = 24;
+    private static final long LEASE_PERMITS_MASK = (1L << LEASE_PERMITS_BITS) - 1;
+
+    private final RequestWindow window;
+    private final AtomicLong blockedAt = new AtomicLong(NOT_BLOCKED);
+    private final AtomicInteger failedAttempts = new AtomicInteger();
+    // Permits leased from the shared store: window index (40 bits) | remaining permits (24 bits).
+    private final AtomicLong sharedLease = new AtomicLong();
+
+    // Time of the last accepted request or failure, the only events that extend the life of the record.
+    private volatile long lastSeen;
+
+    ClientRateState(RequestWindow window, long now) {
+        this.window = window;
+        this.lastSeen = now;
+    }
+
+    // Restores a client saved by a snapshot, the lease of the shared store is not kept.
+    ClientRateState(RequestWindow window, long blockedAt, int failedAttempts, long lastSeen) {
+        this.window = window;
+        this.blockedAt.set(blockedAt);
+        this.failedAttempts.set(failedAttempts);
+        this.lastSeen = lastSeen;
+    }
+
+    boolean isBlocked(long now, long blockMillis){
+        var blocked = blockedAt.get();
+
+        return blocked != NOT_BLOCKED && blocked + blockMillis >= now;
+    }
+
+    long blockRemainingMillis(long now, long blockMillis){
+        return Math.max(0, blockedAt.get() + blockMillis - now);
+    }
+
+    boolean tryAcquire(long now, RequestLimit limit){
+        if(window.tryAcquire(now, limit)){
+            lastSeen = now;
+            return true;
+        }
+
+        return false;
+    }
+
+    long retryAfterMillis(long now, RequestLimit limit){
+        return window.retryAfterMillis(now, limit);
+    }
+
+    int registerFailure(long now){
+        blockedAt.accumulateAndGet(now, Math::max);
+        lastSeen = now;
+
+        return failedAttempts.incrementAndGet();
+    }
+
+    void resetAttempts(){
+        failedAttempts.set(0);
+    }
+
+    int failedAttempts(){
+        return failedAttempts.get();
+    }
+
+    boolean tryTakeLease(long windowIndex){
+        while (true) {
+            var lease = sharedLease.get();
+            var permits = lease & LEASE_PERMITS_MASK;
+
+            if(lease >>> LEASE_PERMITS_BITS != windowIndex || permits == 0){
+                return false;
+            }
+
+            if(sharedLease.compareAndSet(lease, lease - 1)){
+                return true;
+            }
+        }
+    }
+
+    void grantLease(long windowIndex, long permits){
+        sharedLease.set(windowIndex << LEASE_PERMITS_BITS | Math.min(permits, LEASE_PERMITS_MASK));
+    }
+
+    boolean isExpired(long now, long idleTtlMillis, long attemptsTtlMillis){
+        var idle = now - lastSeen;
+
+        return failedAttempts.get() > 0 ? idle > attemptsTtlMillis : idle > idleTtlMillis;
+    }
+
+    long lastSeen(){
+        return lastSeen;
+    }
+
+    long blockedAt(){
+        return blockedAt.get();
+    }
+
+    RequestWindow window(){
+        return window;
+    }
+}
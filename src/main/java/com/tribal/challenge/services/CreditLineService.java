@@ -1,9 +1,26 @@
 package com.tribal.challenge.services;
 
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditEvaluationView;
 import com.tribal.challenge.models.CreditRequestData;
 import com.tribal.challenge.models.CreditRequestView;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public interface CreditLineService {
-    Mono<CreditRequestView> requestCreditLine(CreditRequestData requestData, String ip);
+    Mono<CreditRequestView> requestCreditLine(CreditRequestData requestData, ClientKey client);
+
+    default Mono<CreditRequestView> requestCreditLine(CreditRequestData requestData, String ip){
+        return requestCreditLine(requestData, ClientKey.of(ip));
+    }
+
+    /**
+     * Pre-qualifies each request without saving a credit line or counting attempts. Results are emitted
+     * as soon as they are ready, so they may not follow the order of the requests, use their index.
+     * Requests are charged to the rate limit of the client, the batch ends with a rejected result at the
+     * index of the first request it refuses.
+     */
+    Flux<CreditEvaluationView> evaluateCreditLines(Flux<CreditRequestData> requests, ClientKey client);
+
+    Mono<CreditRequestView> retrieveCreditLineById(String id);
 }
@@ -1,6 +1,9 @@
 package com.tribal.challenge.services;
 
+import com.tribal.challenge.config.CreditLineMetrics;
 import com.tribal.challenge.config.exceptions.BusinessException;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditEvaluationView;
 import com.tribal.challenge.models.CreditRequestView;
 import com.tribal.challenge.models.enums.BusinessType;
 import com.tribal.challenge.models.CreditRequestData;
@@ -9,101 +12,201 @@ import com.tribal.challenge.repository.CreditLineRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
 @Slf4j
 @Service
 public class CreditLineServiceImpl implements CreditLineService {
 
-    private final int MAX_REQUEST_ATTEMPTS;
-    private final double CASH_BALANCE_RATIO;
-    private final double MONTHLY_REVENUE_RATIO;
+    private static final BusinessException BATCH_RATE_LIMITED = new BusinessException(ErrorCode.RATE_LIMITED,
+            "Too many requests, please try later");
+
+    private final int BATCH_CONCURRENCY;
+    private final int BATCH_CHUNK_SIZE;
+    private final long MAX_BATCH_SIZE;
+    private final int MAX_IN_FLIGHT;
 
     private final RateLimitService rateLimitService;
     private final CreditLineRepository creditLineRepository;
+    private final CreditScoringEngine scoringEngine;
+    private final CreditLineMetrics metrics;
+    private final LiveSettingsHolder settings;
+    // Credit line request running for each client, the ones arriving meanwhile share its result.
+    private final ConcurrentMap<ClientKey, Mono<CreditRequestView>> inFlight;
+    private final BusinessException batchTooLarge;
 
     public CreditLineServiceImpl(RateLimitService rateLimitService,
                                  CreditLineRepository creditLineRepository,
-                                 @Value("${configs.limits.requests-attempts:3}") int maxRequestAttempts,
-                                 @Value("${configs.ratios.cash-balance:3}") double cashBalanceRatio,
-                                 @Value("${configs.ratios.monthly-ratio:5}") double monthlyRevenueRatio
+                                 CreditScoringEngine scoringEngine,
+                                 CreditLineMetrics metrics,
+                                 LiveSettingsHolder settings,
+                                 @Value("${configs.batch.concurrency:16}") int batchConcurrency,
+                                 @Value("${configs.batch.chunk-size:100}") int batchChunkSize,
+                                 @Value("${configs.batch.max-size:100000}") long maxBatchSize,
+                                 @Value("${configs.coalescing.max-in-flight:10000}") int maxInFlight
                                  ) {
 
         this.rateLimitService = rateLimitService;
         this.creditLineRepository = creditLineRepository;
-        this.MAX_REQUEST_ATTEMPTS = maxRequestAttempts;
-        this.CASH_BALANCE_RATIO = cashBalanceRatio;
-        this.MONTHLY_REVENUE_RATIO = monthlyRevenueRatio;
+        this.scoringEngine = scoringEngine;
+        this.metrics = metrics;
+        this.settings = settings;
+        this.BATCH_CONCURRENCY = batchConcurrency;
+        this.BATCH_CHUNK_SIZE = batchChunkSize;
+        this.MAX_BATCH_SIZE = maxBatchSize;
+        this.batchTooLarge = new BusinessException(ErrorCode.VALIDATION,
+                "A batch takes up to " + maxBatchSize + " requests");
+        this.MAX_IN_FLIGHT = maxInFlight;
+        this.inFlight = new ConcurrentHashMap<>();
     }
 
+    /**
+     * Concurrent requests of the same client run once: the first one is evaluated and the others get its
+     * credit line or its rejection, so attempts are counted once. Once {@code configs.coalescing.max-in-flight}
+     * clients have a request running, new clients are evaluated on their own.
+     */
     @Override
-    public Mono<CreditRequestView> requestCreditLine(CreditRequestData requestData, String ip) {
-        log.info("Requesting credit line.");
-
-        return rateLimitService.retrieveUserAttempts(ip)
-                .filter(currentAttempts -> currentAttempts < MAX_REQUEST_ATTEMPTS)
-                .switchIfEmpty(Mono.error(BusinessException.MAX_ATTEMPTS_EXCEEDED))
-                .flatMap(it -> creditLineRepository.retrieveCreditLine(ip))
-                .doOnNext(it -> log.info("Credit for your the user {} already exists.", ip))
+    public Mono<CreditRequestView> requestCreditLine(CreditRequestData requestData, ClientKey client) {
+        return Mono.defer(() -> {
+            var running = inFlight.get(client);
+            if(running != null){
+                metrics.coalesced();
+                return running;
+            }
+
+            if(inFlight.size() >= MAX_IN_FLIGHT){
+                return processCreditLine(requestData, client);
+            }
+
+            var created = new AtomicReference<Mono<CreditRequestView>>();
+            var execution = inFlight.computeIfAbsent(client, it -> {
+                // cache() keeps the evaluation running for the others when the first client goes away.
+                created.set(processCreditLine(requestData, client)
+                        .doFinally(signal -> inFlight.remove(client, created.get()))
+                        .cache());
+                return created.get();
+            });
+
+            if(execution != created.get()){
+                metrics.coalesced();
+            }
+
+            return execution;
+        });
+    }
+
+    private Mono<CreditRequestView> processCreditLine(CreditRequestData requestData, ClientKey client) {
+        log.debug("Requesting credit line.");
+
+        return metrics.time(metrics.creditRequest(), rateLimitService.retrieveUserAttempts(client)
+                .filter(currentAttempts -> currentAttempts < settings.current().requestsAttempts())
+                .switchIfEmpty(Mono.defer(() -> {
+                    metrics.maxAttemptsExceeded();
+                    return Mono.error(BusinessException.MAX_ATTEMPTS_EXCEEDED);
+                }))
+                .flatMap(it -> metrics.time(metrics.repositoryRetrieve(), creditLineRepository.retrieveCreditLine(client)))
+                .doOnNext(it -> log.debug("Credit for your the user {} already exists.", client))
                 .switchIfEmpty(Mono.defer(() -> {
-                    log.info("Previous credit not found, proceeding to create a new one for user {}.", ip);
+                    log.debug("Previous credit not found, proceeding to create a new one for user {}.", client);
 
-                    return requestData.validate()
+                    return metrics.time(metrics.validation(), Mono.defer(requestData::validate))
                             .flatMap(this::checkCreditLineRequest)
-                            .flatMap(creditData -> creditLineRepository.saveCreditRequest(creditData, ip))
-                            .flatMap(creditRequestView -> rateLimitService.resetUserAttempts(ip)
+                            .flatMap(creditData -> metrics.time(metrics.repositorySave(),
+                                    creditLineRepository.saveCreditRequest(creditData, client)))
+                            .doOnNext(it -> metrics.approved(BusinessType.of(requestData.getFoundingType())))
+                            .flatMap(creditRequestView -> rateLimitService.resetUserAttempts(client)
                                     .map(it -> creditRequestView)
                             )
-                            .onErrorResume(ex -> rateLimitService.blockUser(ip)
-                                    .flatMap(it -> Mono.error(ex))
-                            );
+                            .onErrorResume(ex -> {
+                                metrics.blocked();
+                                return rateLimitService.blockUser(client)
+                                        .doOnError(BusinessException.class, it -> metrics.maxAttemptsExceeded())
+                                        .flatMap(it -> Mono.error(ex));
+                            });
                         })
-                );
+                ));
     }
 
-    private Mono<CreditRequestData> checkCreditLineRequest(CreditRequestData requestData){
-        Mono<Double> calcRecommendedCredit;
-
-        switch (BusinessType.of(requestData.getFoundingType())){
-            case SME:
-                calcRecommendedCredit = calcRecommendedCreditForSME(requestData);
-            break;
-            case STARTUP:
-                calcRecommendedCredit = calcRecommendedCreditStartup(requestData);
-            break;
-            default:
-                calcRecommendedCredit = Mono.error(new RuntimeException("Not valid businessType handler found"));
+    /**
+     * The requests are read as the evaluations ask for more, so only a bounded number of them is held at once
+     * whatever the size of the batch. The permit taken by the rate limit filter covers the first
+     * {@code configs.batch.chunk-size} requests, each following chunk takes another one before it is evaluated.
+     */
+    @Override
+    public Flux<CreditEvaluationView> evaluateCreditLines(Flux<CreditRequestData> requests, ClientKey client) {
+        return requests.index()
+                .concatMap(it -> admit(it.getT1(), client)
+                        .map(refusal -> BatchItem.refused(it.getT1(), refusal))
+                        .defaultIfEmpty(BatchItem.admitted(it.getT1(), it.getT2())))
+                // Cancelling the body once a request is refused stops reading the rest of it.
+                .takeUntil(BatchItem::isRefused)
+                .flatMap(this::evaluateCreditLine, BATCH_CONCURRENCY);
+    }
+
+    private Mono<BusinessException> admit(long index, ClientKey client){
+        if(index >= MAX_BATCH_SIZE){
+            return Mono.just(batchTooLarge);
         }
 
-        return calcRecommendedCredit
-                .filter(recommendedCredit -> recommendedCredit >= requestData.getRequestedCreditLine())
-                .map(it -> requestData)
-                .switchIfEmpty(Mono.error(new BusinessException(ErrorCode.REJECTED,
-                        "The credit Line could not be approved"))
-                );
-    }
+        if(index == 0 || index % BATCH_CHUNK_SIZE != 0){
+            return Mono.empty();
+        }
 
-    private Mono<Double> calcRecommendedCreditForSME(CreditRequestData requestData){
-        log.info("asda sme");
-        return Mono.just(calcMonthlyRevenue(requestData.getMonthlyRevenue()));
+        return metrics.time(metrics.rateLimitCheck(), rateLimitService.verdict(client))
+                .filter(RateLimitVerdict::isRateLimited)
+                .map(it -> {
+                    metrics.rateLimited(it.getScope());
+                    return BATCH_RATE_LIMITED;
+                });
     }
 
-    private Mono<Double> calcRecommendedCreditStartup(CreditRequestData requestData){
-        var cashBalance = calcCashBalance(requestData.getCashBalance());
-        var monthlyRevenue = calcMonthlyRevenue(requestData.getMonthlyRevenue());
+    @Override
+    public Mono<CreditRequestView> retrieveCreditLineById(String id) {
+        log.debug("Retrieving credit line {}.", id);
 
-        if(cashBalance > monthlyRevenue){
-            return Mono.just(cashBalance);
-        }else {
-            return Mono.just(monthlyRevenue);
+        return metrics.time(metrics.repositoryRetrieve(), creditLineRepository.retrieveCreditLineById(id));
+    }
+
+    private Mono<CreditEvaluationView> evaluateCreditLine(BatchItem item){
+        if(item.isRefused()){
+            return Mono.just(CreditEvaluationView.rejected(item.getIndex(), item.getRefusal()));
         }
+
+        return Mono.defer(item.getRequestData()::validate)
+                .flatMap(this::checkCreditLineRequest)
+                .map(it -> CreditEvaluationView.approved(item.getIndex(), it))
+                .onErrorResume(ex -> Mono.just(CreditEvaluationView.rejected(item.getIndex(), ex)));
     }
 
-    private double calcCashBalance(double cashBalance){
-        return cashBalance * (1/CASH_BALANCE_RATIO);
+    private Mono<CreditRequestData> checkCreditLineRequest(CreditRequestData requestData){
+        if(scoringEngine.approves(requestData)){
+            return Mono.just(requestData);
+        }
+
+        return Mono.error(BusinessException.CREDIT_LINE_REJECTED);
     }
 
-    private double calcMonthlyRevenue(double monthlyRevenue){
-        return monthlyRevenue * (1F/ MONTHLY_REVENUE_RATIO);
+    @lombok.Value
+    private static class BatchItem {
+        long index;
+        CreditRequestData requestData;
+        BusinessException refusal;
+
+        static BatchItem admitted(long index, CreditRequestData requestData){
+            return new BatchItem(index, requestData, null);
+        }
+
+        static BatchItem refused(long index, BusinessException refusal){
+            return new BatchItem(index, null, refusal);
+        }
+
+        boolean isRefused(){
+            return refusal != null;
+        }
     }
 }
@@ -0,0 +1,41 @@
+package com.tribal.challenge.services;
+
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.enums.BusinessType;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scores credit requests with the {@link CreditScoringRule} of their founding type. The request must be
+ * validated first.
+ */
+@Component
+public class CreditScoringEngine {
+
+    private final Map<BusinessType, CreditScoringRule> rules = new EnumMap<>(BusinessType.class);
+
+    public CreditScoringEngine(List<CreditScoringRule> rules) {
+        for(var rule: rules){
+            if(this.rules.put(rule.businessType(), rule) != null){
+                throw new IllegalStateException("More than one scoring rule for " + rule.businessType());
+            }
+        }
+
+        for(var type: BusinessType.values()){
+            if(!this.rules.containsKey(type)){
+                throw new IllegalStateException("No scoring rule for " + type);
+            }
+        }
+    }
+
+    public double recommendedCredit(CreditRequestData requestData){
+        return rules.get(BusinessType.of(requestData.getFoundingType())).recommendedCredit(requestData);
+    }
+
+    public boolean approves(CreditRequestData requestData){
+        return recommendedCredit(requestData) >= requestData.getRequestedCreditLine();
+    }
+}
@@ -0,0 +1,18 @@
+package com.tribal.challenge.services;
+
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.enums.BusinessType;
+
+/**
+ * Scoring of one founding type. Every {@link BusinessType} needs exactly one rule bean, a new founding
+ * type only needs its enum constant and its rule.
+ */
+public interface CreditScoringRule {
+
+    BusinessType businessType();
+
+    /**
+     * Pure and synchronous, called on the request thread.
+     */
+    double recommendedCredit(CreditRequestData requestData);
+}
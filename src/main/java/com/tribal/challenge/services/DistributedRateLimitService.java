@@ -0,0 +1,133 @@
+package com.tribal.challenge.services;
+
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.repository.RateLimitCounterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies {@code configs.limits.requests-allowed} across every instance of the service. The local limiter
+ * still runs first and keeps blocks and failed attempts, the shared store adds a fixed window counter per
+ * client. Permits are leased from the store in blocks of {@code configs.limits.distributed.lease-size}, at most a
+ * tenth of the limit, so most requests are answered from the lease and the others make one round trip. While the
+ * store is unreachable the local decision stands.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = "configs.limits.distributed.enabled", havingValue = "true")
+public class DistributedRateLimitService implements RateLimitService {
+
+    private static final String KEY_PREFIX = "rl:";
+    // Permits leased and left unused on an instance are lost to the others, a lease stays a small share of the limit.
+    private static final int MAX_LEASE_SHARE = 10;
+
+    private final int LEASE_SIZE;
+    private final Duration TIMEOUT;
+    private final long RETRY_STORE_AFTER;
+
+    private final LiveSettingsHolder settings;
+    private final RateLimitService localRateLimitService;
+    private final RateLimitStateStore stateStore;
+    private final RateLimitCounterRepository counterRepository;
+
+    private final AtomicLong storeUnavailableUntil;
+
+    public DistributedRateLimitService(RateLimitServiceImpl localRateLimitService,
+                                       RateLimitStateStore stateStore,
+                                       RateLimitCounterRepository counterRepository,
+                                       LiveSettingsHolder settings,
+                                       @Value("${configs.limits.distributed.lease-size:16}") int leaseSize,
+                                       @Value("${configs.limits.distributed.timeout.millis:50}") long timeout,
+                                       @Value("${configs.limits.distributed.retry-after.seconds:5}") long retryStoreAfter) {
+        this.LEASE_SIZE = Math.max(leaseSize, 1);
+        this.TIMEOUT = Duration.ofMillis(timeout);
+        this.RETRY_STORE_AFTER = Duration.ofSeconds(retryStoreAfter).toMillis();
+
+        this.settings = settings;
+        this.localRateLimitService = localRateLimitService;
+        this.stateStore = stateStore;
+        this.counterRepository = counterRepository;
+
+        this.storeUnavailableUntil = new AtomicLong();
+    }
+
+    @Override
+    public Mono<Boolean> checkRateLimit(ClientKey client) {
+        return verdict(client).map(it -> !it.isRateLimited());
+    }
+
+    @Override
+    public Mono<RateLimitVerdict> verdict(ClientKey client) {
+        return localRateLimitService.verdict(client)
+                .flatMap(verdict -> verdict.isRateLimited()
+                        ? Mono.just(verdict)
+                        : checkSharedLimit(client).map(allowed -> allowed ? verdict : untilNextWindow())
+                );
+    }
+
+    @Override
+    public Mono<Boolean> blockUser(ClientKey client) {
+        return localRateLimitService.blockUser(client);
+    }
+
+    @Override
+    public Mono<Boolean> resetUserAttempts(ClientKey client) {
+        return localRateLimitService.resetUserAttempts(client);
+    }
+
+    @Override
+    public Mono<Integer> retrieveUserAttempts(ClientKey client) {
+        return localRateLimitService.retrieveUserAttempts(client);
+    }
+
+    private RateLimitVerdict untilNextWindow(){
+        var windowMillis = settings.current().requestLimit().getWindowMillis();
+
+        return RateLimitVerdict.rateLimited(windowMillis - System.currentTimeMillis() % windowMillis);
+    }
+
+    private Mono<Boolean> checkSharedLimit(ClientKey client){
+        var limit = settings.current().requestLimit();
+        var now = System.currentTimeMillis();
+        var windowIndex = now / limit.getWindowMillis();
+        var state = stateStore.getOrCreate(client, now);
+
+        if(state.tryTakeLease(windowIndex)){
+            return Mono.just(true);
+        }
+
+        if(now < storeUnavailableUntil.get()){
+            return Mono.just(true);
+        }
+
+        var leaseSize = Math.max(1, Math.min(LEASE_SIZE, limit.getMaxAllowed() / MAX_LEASE_SHARE));
+
+        return counterRepository.incrementBy(KEY_PREFIX + client + ":" + windowIndex, leaseSize, limit.getWindowMillis())
+                .timeout(TIMEOUT)
+                .map(total -> {
+                    // Permits of this lease still under the limit, one is used by the current request.
+                    var granted = Math.min(leaseSize, limit.getMaxAllowed() - (total - leaseSize));
+
+                    if(granted > 1){
+                        state.grantLease(windowIndex, granted - 1);
+                    }
+
+                    return granted > 0;
+                })
+                .onErrorResume(ex -> {
+                    log.warn("Shared rate limit store unavailable, limiting locally for {} seconds.",
+                            Duration.ofMillis(RETRY_STORE_AFTER).toSeconds());
+                    storeUnavailableUntil.set(now + RETRY_STORE_AFTER);
+
+                    return Mono.just(true);
+                });
+    }
+}
@@ -0,0 +1,63 @@
+package com.tribal.challenge.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generic cell rate algorithm. The only state is the theoretical arrival time (TAT) of the next
+ * request in microseconds: every request pushes it one emission interval (window / maxAllowed)
+ * forward, and a request is rejected when that would put the TAT more than a window ahead of now.
+ */
+class GcraWindow implements RequestWindow {
+
+    private final AtomicLong theoreticalArrival = new AtomicLong();
+
+    @Override
+    public boolean tryAcquire(long now, RequestLimit limit) {
+        if(limit.getMaxAllowed() <= 0){
+            return false;
+        }
+
+        var nowMicros = now * 1_000;
+        var windowMicros = limit.getWindowMillis() * 1_000;
+        var emissionInterval = windowMicros / limit.getMaxAllowed();
+
+        while (true) {
+            var tat = theoreticalArrival.get();
+            var nextTat = Math.max(tat, nowMicros) + emissionInterval;
+
+            if(nextTat - nowMicros > windowMicros){
+                return false;
+            }
+
+            if(theoreticalArrival.compareAndSet(tat, nextTat)){
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public long retryAfterMillis(long now, RequestLimit limit) {
+        if(limit.getMaxAllowed() <= 0){
+            return limit.getWindowMillis();
+        }
+
+        var nowMicros = now * 1_000;
+        var windowMicros = limit.getWindowMillis() * 1_000;
+        var emissionInterval = windowMicros / limit.getMaxAllowed();
+        var nextTat = Math.max(theoreticalArrival.get(), nowMicros) + emissionInterval;
+
+        return Math.max((nextTat - nowMicros - windowMicros + 999) / 1_000, 0);
+    }
+
+    @Override
+    public long[] snapshot() {
+        return new long[]{theoreticalArrival.get()};
+    }
+
+    @Override
+    public void restore(long[] state) {
+        if(state.length == 1){
+            theoreticalArrival.set(state[0]);
+        }
+    }
+}
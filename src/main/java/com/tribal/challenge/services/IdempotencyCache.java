@@ -0,0 +1,139 @@
+package com.tribal.challenge.services;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.tribal.challenge.config.exceptions.BusinessException;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditRequestView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Responses of credit line requests sent with an {@value #HEADER} header, by client and key. The first
+ * request runs and every request with the same key, in flight or later, gets its response: the credit line
+ * or the rejection. Unexpected errors are not kept, so the client can retry them.
+ */
+@Slf4j
+@Component
+public class IdempotencyCache {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Cache<Key, Mono<CreditRequestView>> responses;
+
+    public IdempotencyCache(@Value("${configs.idempotency.max-size:100000}") long maxSize,
+                            @Value("${configs.idempotency.ttl.minutes:60}") long ttl) {
+        this.responses = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttl))
+                .build();
+    }
+
+    /**
+     * Response of the request with this key, {@code request} is only subscribed when the key is new.
+     */
+    public Mono<CreditRequestView> execute(ClientKey client, String idempotencyKey, Supplier<Mono<CreditRequestView>> request){
+        if(!isValid(idempotencyKey)){
+            return Mono.error(new IllegalArgumentException(HEADER + " should have between 1 and " + MAX_KEY_LENGTH + " characters"));
+        }
+
+        var key = new Key(client, idempotencyKey);
+
+        return Mono.defer(() -> {
+            var created = new AtomicReference<Sinks.One<CreditRequestView>>();
+            var response = responses.asMap().computeIfAbsent(key, it -> {
+                created.set(Sinks.one());
+                return created.get().asMono();
+            });
+
+            // Started once the placeholder is in the cache, a request completing right away replaces it.
+            if(created.get() != null){
+                run(key, response, created.get(), request);
+            }
+
+            return response;
+        });
+    }
+
+    /**
+     * True when a request with this key already ran or is running, its response does not need a new permit.
+     */
+    public boolean contains(ClientKey client, String idempotencyKey){
+        return isValid(idempotencyKey) && responses.getIfPresent(new Key(client, idempotencyKey)) != null;
+    }
+
+    /**
+     * Runs the first request with this key on its own, so it keeps running when the first client goes away and its
+     * retries still get the response. Duplicates wait on the placeholder, which is then replaced with the outcome
+     * alone: the cache never holds on to the request, nor to the exchange it came from.
+     */
+    private void run(Key key, Mono<CreditRequestView> placeholder, Sinks.One<CreditRequestView> inFlight,
+                     Supplier<Mono<CreditRequestView>> request){
+        Mono.defer(request).subscribe(
+                view -> {
+                    responses.asMap().replace(key, placeholder, Mono.just(view));
+                    inFlight.tryEmitValue(view);
+                },
+                ex -> {
+                    if(isFinal(ex)){
+                        responses.asMap().replace(key, placeholder, Mono.error(ex));
+                    } else {
+                        log.debug("Request {} failed, it can be retried.", key);
+                        responses.asMap().remove(key, placeholder);
+                    }
+                    inFlight.tryEmitError(ex);
+                },
+                () -> {
+                    // Also called after a value, the placeholder is gone by then and the sink already done.
+                    responses.asMap().remove(key, placeholder);
+                    inFlight.tryEmitEmpty();
+                });
+    }
+
+    private static boolean isFinal(Throwable throwable){
+        return throwable instanceof BusinessException || throwable instanceof IllegalArgumentException;
+    }
+
+    private static boolean isValid(String idempotencyKey){
+        return idempotencyKey != null && !idempotencyKey.isBlank() && idempotencyKey.length() <= MAX_KEY_LENGTH;
+    }
+
+    private static final class Key {
+        private final ClientKey client;
+        private final String idempotencyKey;
+
+        private Key(ClientKey client, String idempotencyKey) {
+            this.client = client;
+            this.idempotencyKey = idempotencyKey;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if(!(other instanceof Key)){
+                return false;
+            }
+
+            var key = (Key) other;
+            return key.client.equals(client) && key.idempotencyKey.equals(idempotencyKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * client.hashCode() + idempotencyKey.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return client + "/" + idempotencyKey;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.tribal.challenge.services;
+
+import com.google.common.base.Preconditions;
+
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Immutable snapshot of the ratios and limits that can be tuned without a restart, together with the
+ * values derived from them. {@link LiveSettingsHolder} swaps whole snapshots, so a request reads it once
+ * and always sees a consistent set.
+ */
+public final class LiveSettings {
+
+    static final String REQUESTS_ATTEMPTS = "configs.limits.requests-attempts";
+    static final String REQUESTS_ALLOWED = "configs.limits.requests-allowed";
+    static final String REQUESTS_THRESHOLD = "configs.limits.requests-threshold.minutes";
+    static final String BLOCK_TIME = "configs.limits.block-time.seconds";
+    static final String CASH_BALANCE_RATIO = "configs.ratios.cash-balance";
+    static final String MONTHLY_REVENUE_RATIO = "configs.ratios.monthly-ratio";
+
+    private final int requestsAttempts;
+    private final int requestsAllowed;
+    private final long requestsThresholdMinutes;
+    private final long blockTimeSeconds;
+    private final double cashBalanceRatio;
+    private final double monthlyRevenueRatio;
+
+    private final RequestLimit requestLimit;
+    private final long blockMillis;
+    private final double cashBalanceFactor;
+    private final double monthlyRevenueFactor;
+
+    public LiveSettings(int requestsAttempts, int requestsAllowed, long requestsThresholdMinutes, long blockTimeSeconds,
+                        double cashBalanceRatio, double monthlyRevenueRatio) {
+        Preconditions.checkArgument(requestsAttempts > 0, "%s should be greater than 0", REQUESTS_ATTEMPTS);
+        Preconditions.checkArgument(requestsAllowed > 0, "%s should be greater than 0", REQUESTS_ALLOWED);
+        Preconditions.checkArgument(requestsThresholdMinutes > 0, "%s should be greater than 0", REQUESTS_THRESHOLD);
+        Preconditions.checkArgument(blockTimeSeconds >= 0, "%s should be greater or equals to 0", BLOCK_TIME);
+        Preconditions.checkArgument(cashBalanceRatio > 0, "%s should be greater than 0", CASH_BALANCE_RATIO);
+        Preconditions.checkArgument(monthlyRevenueRatio > 0, "%s should be greater than 0", MONTHLY_REVENUE_RATIO);
+
+        this.requestsAttempts = requestsAttempts;
+        this.requestsAllowed = requestsAllowed;
+        this.requestsThresholdMinutes = requestsThresholdMinutes;
+        this.blockTimeSeconds = blockTimeSeconds;
+        this.cashBalanceRatio = cashBalanceRatio;
+        this.monthlyRevenueRatio = monthlyRevenueRatio;
+
+        this.requestLimit = new RequestLimit(requestsAllowed, Duration.ofMinutes(requestsThresholdMinutes).toMillis());
+        this.blockMillis = Duration.ofSeconds(blockTimeSeconds).toMillis();
+        this.cashBalanceFactor = 1 / cashBalanceRatio;
+        this.monthlyRevenueFactor = 1 / monthlyRevenueRatio;
+    }
+
+    /**
+     * Settings of the given properties, the ones missing keep the value of {@code defaults}.
+     */
+    static LiveSettings from(Properties properties, LiveSettings defaults){
+        return new LiveSettings(
+                Integer.parseInt(property(properties, REQUESTS_ATTEMPTS, defaults.requestsAttempts)),
+                Integer.parseInt(property(properties, REQUESTS_ALLOWED, defaults.requestsAllowed)),
+                Long.parseLong(property(properties, REQUESTS_THRESHOLD, defaults.requestsThresholdMinutes)),
+                Long.parseLong(property(properties, BLOCK_TIME, defaults.blockTimeSeconds)),
+                Double.parseDouble(property(properties, CASH_BALANCE_RATIO, defaults.cashBalanceRatio)),
+                Double.parseDouble(property(properties, MONTHLY_REVENUE_RATIO, defaults.monthlyRevenueRatio))
+        );
+    }
+
+    private static String property(Properties properties, String key, Object defaultValue){
+        return properties.getProperty(key, String.valueOf(defaultValue)).trim();
+    }
+
+    public int requestsAttempts(){
+        return requestsAttempts;
+    }
+
+    public RequestLimit requestLimit(){
+        return requestLimit;
+    }
+
+    public long blockMillis(){
+        return blockMillis;
+    }
+
+    /**
+     * Time after which a client without failed attempts holds nothing worth keeping.
+     */
+    public long idleMillis(){
+        return Math.max(requestLimit.getWindowMillis(), blockMillis);
+    }
+
+    public double cashBalanceFactor(){
+        return cashBalanceFactor;
+    }
+
+    public double monthlyRevenueFactor(){
+        return monthlyRevenueFactor;
+    }
+
+    @Override
+    public String toString() {
+        return REQUESTS_ATTEMPTS + "=" + requestsAttempts
+                + ", " + REQUESTS_ALLOWED + "=" + requestsAllowed
+                + ", " + REQUESTS_THRESHOLD + "=" + requestsThresholdMinutes
+                + ", " + BLOCK_TIME + "=" + blockTimeSeconds
+                + ", " + CASH_BALANCE_RATIO + "=" + cashBalanceRatio
+                + ", " + MONTHLY_REVENUE_RATIO + "=" + monthlyRevenueRatio;
+    }
+}
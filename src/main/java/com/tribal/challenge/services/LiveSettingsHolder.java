@@ -0,0 +1,116 @@
+package com.tribal.challenge.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Current {@link LiveSettings}. When {@code configs.settings.file} is set the file is checked periodically,
+ * a change replaces the snapshot in a single volatile write and the rate limit state is kept. Keys missing
+ * in the file take the value the application started with, an invalid file keeps the current settings.
+ * A {@code configs.limits.requests-allowed} the windows of {@code configs.limits.algorithm} cannot count up to
+ * fails the startup, or is rejected like any other invalid value when it comes from the file.
+ */
+@Slf4j
+@Component
+public class LiveSettingsHolder {
+
+    private final LiveSettings startupSettings;
+    private final RateLimitAlgorithm algorithm;
+    private final Path file;
+    private final Scheduler watcher;
+
+    private volatile LiveSettings current;
+    // Only touched by the watcher thread, or by the constructor before it starts.
+    private long lastModified = Long.MIN_VALUE;
+
+    public LiveSettingsHolder(LiveSettings settings) {
+        this.startupSettings = settings;
+        this.current = settings;
+        this.algorithm = null;
+        this.file = null;
+        this.watcher = null;
+    }
+
+    @Autowired
+    public LiveSettingsHolder(@Value("${configs.limits.requests-attempts:3}") int maxRequestAttempts,
+                              @Value("${configs.limits.requests-allowed:3}") int maxRequestAllowed,
+                              @Value("${configs.limits.requests-threshold.minutes:2}") long maxMinutesThreshold,
+                              @Value("${configs.limits.block-time.seconds:30}") long blockTime,
+                              @Value("${configs.ratios.cash-balance:3}") double cashBalanceRatio,
+                              @Value("${configs.ratios.monthly-ratio:5}") double monthlyRevenueRatio,
+                              @Value("${configs.limits.algorithm:sliding-log}") String algorithm,
+                              @Value("${configs.settings.file:}") String file,
+                              @Value("${configs.settings.reload-interval.seconds:5}") long reloadInterval) {
+        this.startupSettings = new LiveSettings(maxRequestAttempts, maxRequestAllowed, maxMinutesThreshold, blockTime,
+                cashBalanceRatio, monthlyRevenueRatio);
+        this.algorithm = RateLimitAlgorithm.of(algorithm);
+        this.algorithm.checkMaxAllowed(LiveSettings.REQUESTS_ALLOWED, maxRequestAllowed);
+        this.current = startupSettings;
+
+        if(file.isBlank()){
+            this.file = null;
+            this.watcher = null;
+            return;
+        }
+
+        this.file = Path.of(file);
+        this.watcher = Schedulers.newSingle("settings-watcher", true);
+
+        // The file applies from the first request on, afterwards it is checked in the background.
+        reload();
+        watcher.schedulePeriodically(this::reload, reloadInterval, reloadInterval, TimeUnit.SECONDS);
+    }
+
+    public LiveSettings current(){
+        return current;
+    }
+
+    public void reload(){
+        try {
+            if(!Files.exists(file)){
+                if(lastModified != Long.MIN_VALUE){
+                    log.warn("Settings file {} not found, keeping the current settings.", file);
+                    lastModified = Long.MIN_VALUE;
+                }
+                return;
+            }
+
+            var modified = Files.getLastModifiedTime(file).toMillis();
+            if(modified == lastModified){
+                return;
+            }
+            lastModified = modified;
+
+            var properties = new Properties();
+            try(var reader = Files.newBufferedReader(file)){
+                properties.load(reader);
+            }
+
+            var settings = LiveSettings.from(properties, startupSettings);
+            algorithm.checkMaxAllowed(LiveSettings.REQUESTS_ALLOWED, settings.requestLimit().getMaxAllowed());
+
+            current = settings;
+            log.info("Settings loaded from {}: {}.", file, current);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Could not load the settings from {}, keeping the current settings: {}", file, ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        if(watcher != null){
+            watcher.dispose();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.tribal.challenge.services;
+
+import com.google.common.base.Preconditions;
+import com.tribal.challenge.models.ClientKey;
+
+import java.util.function.Supplier;
+
+public enum RateLimitAlgorithm {
+    SLIDING_LOG("sliding-log", SlidingLogWindow::new, Integer.MAX_VALUE),
+    RING_BUFFER("ring-buffer", RingBufferWindow::new, Integer.MAX_VALUE),
+    SLIDING_COUNTER("sliding-counter", SlidingCounterWindow::new, SlidingCounterWindow.MAX_COUNT),
+    TOKEN_BUCKET("token-bucket", TokenBucketWindow::new, TokenBucketWindow.MAX_REQUESTS),
+    GCRA("gcra", GcraWindow::new, Integer.MAX_VALUE);
+
+    String name;
+    Supplier<RequestWindow> windowFactory;
+    int maxAllowed;
+
+    RateLimitAlgorithm(String name, Supplier<RequestWindow> windowFactory, int maxAllowed) {
+        this.name = name;
+        this.windowFactory = windowFactory;
+        this.maxAllowed = maxAllowed;
+    }
+
+    public RequestWindow newWindow(){
+        return windowFactory.get();
+    }
+
+    /**
+     * Algorithm counting the requests of {@code key}. Networks are shared by all their clients, they always get a
+     * single GCRA cell: one compare-and-set per request, whatever their limit and the algorithm of the clients.
+     */
+    public RateLimitAlgorithm forKey(ClientKey key){
+        return key.isSubnet() ? GCRA : this;
+    }
+
+    /**
+     * Fails when the windows of this algorithm cannot count up to {@code maxAllowed} requests, so a limit
+     * is rejected when configured instead of being clamped by the window.
+     */
+    public void checkMaxAllowed(String property, int maxAllowed){
+        Preconditions.checkArgument(maxAllowed <= this.maxAllowed, "%s should be lower or equals to %s with the %s algorithm",
+                property, this.maxAllowed, name);
+    }
+
+    public static RateLimitAlgorithm of(String algorithm){
+        for(var it: RateLimitAlgorithm.values()){
+            if(it.name.equalsIgnoreCase(algorithm)){
+                return it;
+            }
+        }
+
+        throw new IllegalArgumentException("Not valid rate limit algorithm " + algorithm);
+    }
+}
@@ -1,11 +1,38 @@
 package com.tribal.challenge.services;
 
+import com.tribal.challenge.models.ClientKey;
 import reactor.core.publisher.Mono;
 
 public interface RateLimitService {
 
-    Mono<Boolean> checkRateLimit(String ip);
-    Mono<Boolean> blockUser(String ip);
-    Mono<Boolean> resetUserAttempts(String ip);
-    Mono<Integer> retrieveUserAttempts(String ip);
+    Mono<Boolean> checkRateLimit(ClientKey client);
+
+    /**
+     * Same check as {@link #checkRateLimit(ClientKey)}, an allowed request also reports if the client is out of
+     * attempts so it can be rejected before its body is read.
+     */
+    Mono<RateLimitVerdict> verdict(ClientKey client);
+    Mono<Boolean> blockUser(ClientKey client);
+    Mono<Boolean> resetUserAttempts(ClientKey client);
+    Mono<Integer> retrieveUserAttempts(ClientKey client);
+
+    default Mono<Boolean> checkRateLimit(String ip){
+        return checkRateLimit(ClientKey.of(ip));
+    }
+
+    default Mono<RateLimitVerdict> verdict(String ip){
+        return verdict(ClientKey.of(ip));
+    }
+
+    default Mono<Boolean> blockUser(String ip){
+        return blockUser(ClientKey.of(ip));
+    }
+
+    default Mono<Boolean> resetUserAttempts(String ip){
+        return resetUserAttempts(ClientKey.of(ip));
+    }
+
+    default Mono<Integer> retrieveUserAttempts(String ip){
+        return retrieveUserAttempts(ClientKey.of(ip));
+    }
 }
@@ -1,135 +1,122 @@
 package com.tribal.challenge.services;
 
 import com.tribal.challenge.config.exceptions.BusinessException;
+import com.tribal.challenge.models.ClientKey;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-
 @Slf4j
 @Service
 public class RateLimitServiceImpl implements  RateLimitService{
 
-    private final int MAX_REQUEST_ATTEMPTS;
-    private final int MAX_REQUEST_ALLOWED;
-    private final long MAX_MINUTES_THRESHOLD;
-    private final long BLOCK_TIME;
-
-    private Map<String, List<LocalDateTime>> rateLimitPerIP;
-    private Map<String, LocalDateTime> blockedUsersPerIP;
-    private Map<String, Integer> failedAttemptsPerIp;
-
-    public RateLimitServiceImpl(@Value("${configs.limits.requests-attempts:3}") int maxRequestAttempts,
-                                @Value("${configs.limits.requests-allowed:3}") int maxRequestAllowed,
-                                @Value("${configs.limits.requests-threshold.minutes:2}") long maxMinutesThreshold,
-                                @Value("${configs.limits.block-time.seconds:30}") long blockTime) {
-        this.MAX_REQUEST_ATTEMPTS = maxRequestAttempts;
-        this.MAX_REQUEST_ALLOWED = maxRequestAllowed;
-        this.MAX_MINUTES_THRESHOLD = maxMinutesThreshold;
-        this.BLOCK_TIME = blockTime;
-
-        this.rateLimitPerIP = new HashMap<>();
-        this.blockedUsersPerIP = new HashMap<>();
-        this.failedAttemptsPerIp = new HashMap<>();
-    }
+    private static final Mono<RateLimitVerdict> ALLOWED = Mono.just(RateLimitVerdict.ALLOWED);
 
-    @Override
-    public Mono<Boolean> checkRateLimit(String ip) {
-        log.info("Check rate limit for user {}", ip);
+    private final LiveSettingsHolder settings;
+    private final RateLimitStateStore stateStore;
+    private final RateLimitTiers tiers;
+
+    public RateLimitServiceImpl(RateLimitStateStore stateStore, LiveSettingsHolder settings) {
+        this(stateStore, settings, RateLimitTiers.disabled());
+    }
 
-        return userIsNotBlocked(ip)
-                .filter(it -> it)
-                .flatMap(it -> userIsBelowRateLimit(ip))
-                .switchIfEmpty(Mono.just(false));
+    @Autowired
+    public RateLimitServiceImpl(RateLimitStateStore stateStore, LiveSettingsHolder settings, RateLimitTiers tiers) {
+        this.stateStore = stateStore;
+        this.settings = settings;
+        this.tiers = tiers;
     }
 
     @Override
-    public Mono<Boolean> blockUser(String ip) {
-        log.info("Request failed, blocking user {} temporally", ip);
+    public Mono<Boolean> checkRateLimit(ClientKey client) {
+        return verdict(client).map(it -> !it.isRateLimited());
+    }
 
-        var attempts = failedAttemptsPerIp.getOrDefault(ip, 0);
+    @Override
+    public Mono<RateLimitVerdict> verdict(ClientKey client) {
+        log.debug("Check rate limit for user {}", client);
 
-        failedAttemptsPerIp.put(ip, attempts + 1);
-        blockedUsersPerIP.put(ip, LocalDateTime.now(ZoneOffset.UTC));
+        var current = settings.current();
+        var now = System.currentTimeMillis();
+        var state = stateStore.getOrCreate(client, now);
 
-        if(failedAttemptsPerIp.get(ip) >= MAX_REQUEST_ATTEMPTS){
-            return Mono.error(BusinessException.MAX_ATTEMPTS_EXCEEDED);
+        if(state.isBlocked(now, current.blockMillis())){
+            return Mono.just(RateLimitVerdict.rateLimited(state.blockRemainingMillis(now, current.blockMillis())));
         }
 
-        return Mono.just(true);
-    }
-
-    @Override
-    public Mono<Boolean> resetUserAttempts(String ip) {
-        log.info("Reset attempts for user {}", ip);
-
-        failedAttemptsPerIp.remove(ip);
-        return Mono.just(true);
-    }
+        // Wider tiers are only peeked before the client window, so a rejection never spends the allowance
+        // of a narrower tier. Two requests racing for the last permit of a wider tier may still spend it.
+        var subnetLimit = tiers.subnetLimit(client, current.requestLimit().getWindowMillis());
+        var subnetKey = subnetLimit == null ? null : client.subnet();
+        var subnetState = subnetKey == null ? null : stateStore.getOrCreate(subnetKey, now);
+
+        if(subnetState != null){
+            var retryAfter = subnetState.retryAfterMillis(now, subnetLimit);
+            if(retryAfter > 0){
+                return Mono.just(RateLimitVerdict.rateLimited(RateLimitVerdict.Scope.SUBNET, retryAfter));
+            }
+        }
 
-    @Override
-    public Mono<Integer> retrieveUserAttempts(String ip) {
-        log.info("Retrieving attempts for user {}", ip);
+        if(tiers.hasGlobalLimit()){
+            var retryAfter = tiers.globalRetryAfterMillis(now);
+            if(retryAfter > 0){
+                return Mono.just(RateLimitVerdict.rateLimited(RateLimitVerdict.Scope.GLOBAL, retryAfter));
+            }
+        }
 
-        return Mono.just(failedAttemptsPerIp.getOrDefault(ip, 0));
-    }
+        if(!state.tryAcquire(now, current.requestLimit())){
+            return Mono.just(RateLimitVerdict.rateLimited(state.retryAfterMillis(now, current.requestLimit())));
+        }
 
-    private Mono<Boolean> userIsNotBlocked(String ip){
-        log.info("Check user {} status.", ip);
+        if(subnetState != null && !subnetState.tryAcquire(now, subnetLimit)){
+            return Mono.just(RateLimitVerdict.rateLimited(RateLimitVerdict.Scope.SUBNET, subnetState.retryAfterMillis(now, subnetLimit)));
+        }
 
-        var blockTime = LocalDateTime.now(ZoneOffset.UTC).minusSeconds(BLOCK_TIME);
+        if(tiers.hasGlobalLimit() && !tiers.tryAcquireGlobal(now)){
+            return Mono.just(RateLimitVerdict.rateLimited(RateLimitVerdict.Scope.GLOBAL, tiers.globalRetryAfterMillis(now)));
+        }
 
-        if(!blockedUsersPerIP.containsKey(ip)){
-            return Mono.just(true);
+        if(state.failedAttempts() >= current.requestsAttempts()){
+            // The request was just accepted, so the attempts are forgotten once they stay idle for their TTL.
+            return Mono.just(RateLimitVerdict.maxAttemptsExceeded(stateStore.attemptsTtlMillis()));
         }
 
-        return Mono.just(blockedUsersPerIP.get(ip))
-                .filter(it -> it.isBefore(blockTime))
-                .map(it -> true)
-                .switchIfEmpty(Mono.just(false));
+        return ALLOWED;
     }
 
-    private Mono<Boolean> userIsBelowRateLimit(String ip){
-        log.info("Check user {} rate limit", ip);
+    @Override
+    public Mono<Boolean> blockUser(ClientKey client) {
+        log.debug("Request failed, blocking user {} temporally", client);
 
-        var lastRequests = rateLimitPerIP.getOrDefault(ip, List.of());
+        var now = System.currentTimeMillis();
+        var attempts = stateStore.getOrCreate(client, now).registerFailure(now);
 
-        if(lastRequests.isEmpty()) {
-            return Mono.just(updateLimitCountForUser(ip, List.of()));
+        if(attempts >= settings.current().requestsAttempts()){
+            return Mono.error(BusinessException.MAX_ATTEMPTS_EXCEEDED);
         }
 
-        return Mono.just(cleanOldRequestCount(lastRequests))
-                .filter(latestRequest -> latestRequest.size() < MAX_REQUEST_ALLOWED)
-                .map(latestRequest -> updateLimitCountForUser(ip, latestRequest))
-                .switchIfEmpty(Mono.just(false));
+        return Mono.just(true);
     }
 
-    private List<LocalDateTime> cleanOldRequestCount(List<LocalDateTime> localDateTimes){
-        log.info("Clean ol request for user {}", localDateTimes);
+    @Override
+    public Mono<Boolean> resetUserAttempts(ClientKey client) {
+        log.debug("Reset attempts for user {}", client);
 
-        var olderRequestAllowed = LocalDateTime.now(ZoneOffset.UTC).minusMinutes(MAX_MINUTES_THRESHOLD);
+        var state = stateStore.get(client);
+        if(state != null){
+            state.resetAttempts();
+        }
 
-        return localDateTimes.stream()
-                .filter(it -> it.isAfter(olderRequestAllowed))
-                .collect(Collectors.toList());
+        return Mono.just(true);
     }
 
-    private boolean updateLimitCountForUser(String ip, List<LocalDateTime> latestRequest){
-        log.info("Updating limit request for user {}", ip);
-
-        var aux = new ArrayList<>(latestRequest);
+    @Override
+    public Mono<Integer> retrieveUserAttempts(ClientKey client) {
+        log.debug("Retrieving attempts for user {}", client);
 
-        aux.add(LocalDateTime.now(ZoneOffset.UTC));
-        rateLimitPerIP.put(ip, aux);
+        var state = stateStore.get(client);
 
-        return true;
+        return Mono.just(state == null ? 0 : state.failedAttempts());
     }
 }
@@ -0,0 +1,149 @@
+package com.tribal.challenge.services;
+
+import com.tribal.challenge.models.ClientKey;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Binary file with the rate limit state of every client, so a restart keeps blocks, attempts and windows.
+ * <p>
+ * Layout: magic (int) | version (byte) | algorithm (utf) | taken at (long), then per client
+ * 1 (byte) | client key | blocked at (long) | failed attempts (int) | last seen (long) | window length (int) |
+ * window (longs), and 0 (byte) at the end. A file without the end marker was not fully written and fails to read.
+ * Windows of networks are GCRA cells since version 3. Version 1 files, with a short window length, and version 2
+ * files are still read, their network windows are only restored when the clients used GCRA too.
+ */
+final class RateLimitSnapshot {
+
+    private static final int MAGIC = 0x524C5353;
+    private static final byte VERSION = 3;
+    // Window lengths were shorts, too small for the logs of a limit over 65535 requests.
+    private static final byte SHORT_LENGTH_VERSION = 1;
+    // Networks were counted with the algorithm of the clients up to this version.
+    private static final byte CLIENT_ALGORITHM_SUBNETS_VERSION = 2;
+    private static final byte CLIENT = 1;
+    private static final byte END = 0;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private RateLimitSnapshot() {
+    }
+
+    /**
+     * Writes the clients to a temporary file moved over {@code file} once complete and synced. The map is read
+     * while requests keep updating it, each client is saved as it is when reached.
+     */
+    static int write(Path file, RateLimitAlgorithm algorithm, Map<ClientKey, ClientRateState> clients, long now) throws IOException {
+        var directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        var temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        var written = 0;
+
+        try {
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+                 var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeUTF(algorithm.name);
+                out.writeLong(now);
+
+                for(var entry: clients.entrySet()){
+                    var state = entry.getValue();
+                    var window = state.window().snapshot();
+
+                    out.writeByte(CLIENT);
+                    entry.getKey().writeTo(out);
+                    out.writeLong(state.blockedAt());
+                    out.writeInt(state.failedAttempts());
+                    out.writeLong(state.lastSeen());
+                    out.writeInt(window.length);
+                    for(var value: window){
+                        out.writeLong(value);
+                    }
+                    written++;
+                }
+
+                out.writeByte(END);
+                out.flush();
+
+                // The rename may reach the disk before the content, a crash would then leave an empty snapshot.
+                channel.force(true);
+            }
+
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        return written;
+    }
+
+    /**
+     * Reads the clients of {@code file}, the ones expired at {@code now} are skipped. Windows saved with
+     * another algorithm are not restored, the client starts a new window but keeps its block and attempts.
+     *
+     * @return the clients restored, 0 when there is no usable file.
+     */
+    static int read(Path file, RateLimitAlgorithm algorithm, long now, long idleTtlMillis, long attemptsTtlMillis,
+                    BiConsumer<ClientKey, ClientRateState> consumer) throws IOException {
+        if(!Files.exists(file)){
+            return 0;
+        }
+
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if(in.readInt() != MAGIC){
+                throw new IOException("Not a rate limit snapshot " + file);
+            }
+
+            var version = in.readByte();
+            if(version < SHORT_LENGTH_VERSION || version > VERSION){
+                throw new IOException("Unknown rate limit snapshot version " + version + " in " + file);
+            }
+
+            var sameAlgorithm = algorithm.name.equals(in.readUTF());
+            in.readLong();
+
+            var restored = 0;
+            while (in.readByte() == CLIENT) {
+                var key = ClientKey.readFrom(in);
+                var blockedAt = in.readLong();
+                var failedAttempts = in.readInt();
+                var lastSeen = in.readLong();
+                var window = new long[version == SHORT_LENGTH_VERSION ? in.readUnsignedShort() : in.readInt()];
+                for(var i = 0; i < window.length; i++){
+                    window[i] = in.readLong();
+                }
+
+                var windowAlgorithm = algorithm.forKey(key);
+                var requestWindow = windowAlgorithm.newWindow();
+                var sameWindow = key.isSubnet() && version > CLIENT_ALGORITHM_SUBNETS_VERSION
+                        || sameAlgorithm && windowAlgorithm == algorithm;
+                if(sameWindow){
+                    requestWindow.restore(window);
+                }
+
+                var state = new ClientRateState(requestWindow, blockedAt, failedAttempts, lastSeen);
+                if(!state.isExpired(now, idleTtlMillis, attemptsTtlMillis)){
+                    consumer.accept(key, state);
+                    restored++;
+                }
+            }
+
+            return restored;
+        } catch (EOFException ex) {
+            throw new IOException("Truncated rate limit snapshot " + file, ex);
+        }
+    }
+}
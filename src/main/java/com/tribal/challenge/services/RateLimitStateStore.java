@@ -0,0 +1,261 @@
+package com.tribal.challenge.services;
+
+import com.tribal.challenge.models.ClientKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded table of {@link ClientRateState} per client. Expiry and eviction run on a dedicated sweeper
+ * thread, request threads only schedule an early sweep when the table grows over its capacity.
+ * <p>
+ * When {@code configs.limits.snapshot.file} is set the table is restored from it on startup, and saved to it
+ * periodically and on shutdown by a snapshot thread, see {@link RateLimitSnapshot}.
+ */
+@Slf4j
+@Component
+public class RateLimitStateStore {
+
+    private static final int EVICTION_SAMPLE_SIZE = 1024;
+
+    private final long ATTEMPTS_TTL;
+    private final int MAX_CLIENTS;
+
+    private final LiveSettingsHolder settings;
+    private final RateLimitAlgorithm algorithm;
+    private final ConcurrentMap<ClientKey, ClientRateState> clientStates;
+
+    private final Scheduler sweeper;
+    private final AtomicBoolean sweepPending;
+    private final AtomicLong expiredEntries;
+    private final AtomicLong evictedEntries;
+
+    private final Path snapshotFile;
+    private final Scheduler snapshotter;
+
+    public RateLimitStateStore(LiveSettingsHolder settings, long attemptsTtl, int maxClients, long sweepInterval, String algorithm) {
+        this(settings, attemptsTtl, maxClients, sweepInterval, algorithm, "", 0);
+    }
+
+    @Autowired
+    public RateLimitStateStore(LiveSettingsHolder settings,
+                               @Value("${configs.limits.attempts-ttl.minutes:1440}") long attemptsTtl,
+                               @Value("${configs.limits.max-clients:1000000}") int maxClients,
+                               @Value("${configs.limits.sweep-interval.seconds:10}") long sweepInterval,
+                               @Value("${configs.limits.algorithm:sliding-log}") String algorithm,
+                               @Value("${configs.limits.snapshot.file:}") String snapshotFile,
+                               @Value("${configs.limits.snapshot.interval.seconds:30}") long snapshotInterval) {
+        this.ATTEMPTS_TTL = Duration.ofMinutes(attemptsTtl).toMillis();
+        this.MAX_CLIENTS = maxClients;
+
+        this.settings = settings;
+        this.algorithm = RateLimitAlgorithm.of(algorithm);
+        this.clientStates = new ConcurrentHashMap<>();
+
+        this.sweepPending = new AtomicBoolean();
+        this.expiredEntries = new AtomicLong();
+        this.evictedEntries = new AtomicLong();
+        this.sweeper = Schedulers.newSingle("rate-limit-sweeper", true);
+        this.sweeper.schedulePeriodically(this::sweep, sweepInterval, sweepInterval, TimeUnit.SECONDS);
+
+        if(snapshotFile.isBlank()){
+            this.snapshotFile = null;
+            this.snapshotter = null;
+            return;
+        }
+
+        this.snapshotFile = Path.of(snapshotFile);
+        restore();
+
+        this.snapshotter = Schedulers.newSingle("rate-limit-snapshot", true);
+        this.snapshotter.schedulePeriodically(this::snapshot, snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+    }
+
+    ClientRateState get(ClientKey key){
+        return clientStates.get(key);
+    }
+
+    ClientRateState getOrCreate(ClientKey key, long now){
+        // Plain get first, computeIfAbsent locks the bin even when the client is already known.
+        var state = clientStates.get(key);
+        if(state != null){
+            return state;
+        }
+
+        state = clientStates.computeIfAbsent(key, it -> new ClientRateState(algorithm.forKey(it).newWindow(), now));
+
+        if(clientStates.size() > MAX_CLIENTS && sweepPending.compareAndSet(false, true)){
+            sweeper.schedule(this::sweep);
+        }
+
+        return state;
+    }
+
+    long attemptsTtlMillis(){
+        return ATTEMPTS_TTL;
+    }
+
+    public int size(){
+        return clientStates.size();
+    }
+
+    public long expiredEntries(){
+        return expiredEntries.get();
+    }
+
+    public long evictedEntries(){
+        return evictedEntries.get();
+    }
+
+    private void sweep(){
+        sweep(System.currentTimeMillis());
+    }
+
+    /**
+     * Removes the clients expired at {@code now} and evicts the least recently seen ones over
+     * {@code configs.limits.max-clients}. The sweeper thread runs it with the current time.
+     */
+    public void sweep(long now){
+        sweepPending.set(false);
+
+        try {
+            var idleTtl = settings.current().idleMillis();
+            var expired = 0;
+
+            for(var entry: clientStates.entrySet()){
+                if(entry.getValue().isExpired(now, idleTtl, ATTEMPTS_TTL)
+                        && clientStates.remove(entry.getKey(), entry.getValue())){
+                    expired++;
+                }
+            }
+            expiredEntries.addAndGet(expired);
+
+            var evicted = evictLeastRecentlySeen();
+
+            if(expired > 0 || evicted > 0){
+                log.info("Rate limit sweep: {} expired, {} evicted, {} clients tracked.", expired, evicted, clientStates.size());
+            }
+        } catch (RuntimeException ex) {
+            log.error("Rate limit sweep failed.", ex);
+        }
+    }
+
+    private int evictLeastRecentlySeen(){
+        var evicted = 0;
+        var excess = clientStates.size() - MAX_CLIENTS;
+
+        // The cutoff is estimated, so a pass may fall short of the excess and another one follows.
+        while (excess > 0) {
+            var cutoff = lastSeenCutoff(excess);
+
+            var removed = 0;
+            for(var entry: clientStates.entrySet()){
+                if(removed >= excess){
+                    break;
+                }
+
+                if(entry.getValue().lastSeen() <= cutoff && clientStates.remove(entry.getKey(), entry.getValue())){
+                    removed++;
+                }
+            }
+
+            if(removed == 0){
+                break;
+            }
+
+            evicted += removed;
+            excess = clientStates.size() - MAX_CLIENTS;
+        }
+        evictedEntries.addAndGet(evicted);
+
+        return evicted;
+    }
+
+    // Last seen time at or under which at least about excess clients fall, estimated from a uniform sample
+    // of the table so a sweep over the cap stays linear instead of sorting every client.
+    private long lastSeenCutoff(int excess){
+        var sample = new long[EVICTION_SAMPLE_SIZE];
+        var random = ThreadLocalRandom.current();
+        var seen = 0;
+
+        for(var state: clientStates.values()){
+            var slot = seen < sample.length ? seen : random.nextInt(seen + 1);
+            if(slot < sample.length){
+                sample[slot] = state.lastSeen();
+            }
+            seen++;
+        }
+
+        if(seen == 0){
+            return Long.MIN_VALUE;
+        }
+
+        var sampled = Math.min(seen, sample.length);
+        Arrays.sort(sample, 0, sampled);
+
+        return sample[(int) Math.min((long) excess * sampled / seen, sampled - 1)];
+    }
+
+    private void restore(){
+        var start = System.currentTimeMillis();
+
+        try {
+            var restored = RateLimitSnapshot.read(snapshotFile, algorithm, start, settings.current().idleMillis(),
+                    ATTEMPTS_TTL, clientStates::put);
+
+            if(restored > 0){
+                log.info("Restored {} clients from {} in {} ms.", restored, snapshotFile, System.currentTimeMillis() - start);
+            }
+
+            if(clientStates.size() > MAX_CLIENTS){
+                sweeper.schedule(this::sweep);
+            }
+        } catch (IOException | RuntimeException ex) {
+            clientStates.clear();
+            log.warn("Could not restore the rate limit from {}, starting empty: {}", snapshotFile, ex.getMessage());
+        }
+    }
+
+    /**
+     * Saves the table to {@code configs.limits.snapshot.file}, requests are not stopped meanwhile.
+     */
+    public void snapshot(){
+        if(snapshotFile == null){
+            return;
+        }
+
+        var start = System.currentTimeMillis();
+
+        try {
+            var written = RateLimitSnapshot.write(snapshotFile, algorithm, clientStates, start);
+            log.debug("Saved {} clients to {} in {} ms.", written, snapshotFile, System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException ex) {
+            log.error("Could not save the rate limit to {}.", snapshotFile, ex);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown(){
+        sweeper.dispose();
+
+        if(snapshotter != null){
+            snapshotter.dispose();
+            snapshot();
+        }
+    }
+}
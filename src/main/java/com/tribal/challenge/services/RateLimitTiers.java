@@ -0,0 +1,84 @@
+package com.tribal.challenge.services;
+
+import com.google.common.base.Preconditions;
+import com.tribal.challenge.models.ClientKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits applied on top of the per client limit: one per /24 IPv4 or /64 IPv6 network, counted inside
+ * {@code configs.limits.requests-threshold.minutes} like the client limit, and a global requests per second
+ * ceiling for the instance. A limit of 0 disables its tier, then it costs nothing per request. Both tiers are
+ * counted by GCRA cells whatever the client algorithm, each adds one compare-and-set per request.
+ */
+@Component
+public class RateLimitTiers {
+
+    private final int IPV4_SUBNET_ALLOWED;
+    private final int IPV6_SUBNET_ALLOWED;
+
+    private final RequestLimit globalLimit;
+    // Single GCRA cell, one compare-and-set per request whatever the limit.
+    private final GcraWindow globalWindow = new GcraWindow();
+
+    private volatile RequestLimit ipv4SubnetLimit;
+    private volatile RequestLimit ipv6SubnetLimit;
+
+    public RateLimitTiers(@Value("${configs.limits.ipv4-subnet.requests-allowed:0}") int ipv4SubnetAllowed,
+                          @Value("${configs.limits.ipv6-subnet.requests-allowed:0}") int ipv6SubnetAllowed,
+                          @Value("${configs.limits.global.requests-per-second:0}") int globalPerSecond) {
+        Preconditions.checkArgument(ipv4SubnetAllowed >= 0, "configs.limits.ipv4-subnet.requests-allowed should be greater or equals to 0");
+        Preconditions.checkArgument(ipv6SubnetAllowed >= 0, "configs.limits.ipv6-subnet.requests-allowed should be greater or equals to 0");
+        Preconditions.checkArgument(globalPerSecond >= 0, "configs.limits.global.requests-per-second should be greater or equals to 0");
+
+        this.IPV4_SUBNET_ALLOWED = ipv4SubnetAllowed;
+        this.IPV6_SUBNET_ALLOWED = ipv6SubnetAllowed;
+        this.globalLimit = globalPerSecond > 0 ? new RequestLimit(globalPerSecond, 1_000) : null;
+        this.ipv4SubnetLimit = new RequestLimit(ipv4SubnetAllowed, 0);
+        this.ipv6SubnetLimit = new RequestLimit(ipv6SubnetAllowed, 0);
+    }
+
+    public static RateLimitTiers disabled(){
+        return new RateLimitTiers(0, 0, 0);
+    }
+
+    /**
+     * Limit of the network of {@code client} for a window of {@code windowMillis}, null when its tier is disabled.
+     */
+    RequestLimit subnetLimit(ClientKey client, long windowMillis){
+        if(client.isIpv4()){
+            if(IPV4_SUBNET_ALLOWED == 0){
+                return null;
+            }
+
+            var limit = ipv4SubnetLimit;
+            if(limit.getWindowMillis() != windowMillis){
+                // Only rebuilt when the live settings change the window.
+                limit = ipv4SubnetLimit = new RequestLimit(IPV4_SUBNET_ALLOWED, windowMillis);
+            }
+            return limit;
+        }
+
+        if(IPV6_SUBNET_ALLOWED == 0){
+            return null;
+        }
+
+        var limit = ipv6SubnetLimit;
+        if(limit.getWindowMillis() != windowMillis){
+            limit = ipv6SubnetLimit = new RequestLimit(IPV6_SUBNET_ALLOWED, windowMillis);
+        }
+        return limit;
+    }
+
+    boolean hasGlobalLimit(){
+        return globalLimit != null;
+    }
+
+    long globalRetryAfterMillis(long now){
+        return globalWindow.retryAfterMillis(now, globalLimit);
+    }
+
+    boolean tryAcquireGlobal(long now){
+        return globalWindow.tryAcquire(now, globalLimit);
+    }
+}
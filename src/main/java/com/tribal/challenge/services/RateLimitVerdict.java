@@ -0,0 +1,52 @@
+package com.tribal.challenge.services;
+
+import lombok.Value;
+
+/**
+ * Decision of the rate limit for one request, with the seconds the client should wait before retrying
+ * when it is not allowed and the limit that decided it.
+ */
+@Value
+public class RateLimitVerdict {
+
+    public static final RateLimitVerdict ALLOWED = new RateLimitVerdict(Outcome.ALLOWED, Scope.CLIENT, 0);
+
+    Outcome outcome;
+    Scope scope;
+    long retryAfterSeconds;
+
+    public static RateLimitVerdict rateLimited(long retryAfterMillis){
+        return rateLimited(Scope.CLIENT, retryAfterMillis);
+    }
+
+    public static RateLimitVerdict rateLimited(Scope scope, long retryAfterMillis){
+        return new RateLimitVerdict(Outcome.RATE_LIMITED, scope, toSeconds(retryAfterMillis));
+    }
+
+    public static RateLimitVerdict maxAttemptsExceeded(long retryAfterMillis){
+        return new RateLimitVerdict(Outcome.MAX_ATTEMPTS_EXCEEDED, Scope.CLIENT, toSeconds(retryAfterMillis));
+    }
+
+    public boolean isRateLimited(){
+        return outcome == Outcome.RATE_LIMITED;
+    }
+
+    private static long toSeconds(long millis){
+        return Math.max(1, (millis + 999) / 1000);
+    }
+
+    public enum Outcome {
+        ALLOWED,
+        RATE_LIMITED,
+        // Under the rate limit, but out of attempts to request a credit line.
+        MAX_ATTEMPTS_EXCEEDED
+    }
+
+    public enum Scope {
+        CLIENT,
+        // The /24 or /64 network of the client.
+        SUBNET,
+        // All the clients of the instance.
+        GLOBAL
+    }
+}
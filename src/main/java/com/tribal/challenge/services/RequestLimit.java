@@ -0,0 +1,9 @@
+package com.tribal.challenge.services;
+
+import lombok.Value;
+
+@Value
+public class RequestLimit {
+    int maxAllowed;
+    long windowMillis;
+}
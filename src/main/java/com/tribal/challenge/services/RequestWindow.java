@@ -0,0 +1,29 @@
+package com.tribal.challenge.services;
+
+/**
+ * Per-client state of a rate limit algorithm, new algorithms are registered in {@link RateLimitAlgorithm}.
+ * Implementations must be safe to call from several threads.
+ */
+public interface RequestWindow {
+
+    /**
+     * Records a request made at {@code now} (epoch millis) if the client is still below the limit.
+     */
+    boolean tryAcquire(long now, RequestLimit limit);
+
+    /**
+     * Milliseconds until the next request would be accepted, 0 if it would be accepted now.
+     */
+    long retryAfterMillis(long now, RequestLimit limit);
+
+    /**
+     * State of the window, to be given back to {@link #restore(long[])} after a restart. Request times
+     * are epoch millis, so the state stays valid across restarts.
+     */
+    long[] snapshot();
+
+    /**
+     * Replaces the state of a new window with one taken by {@link #snapshot()} of the same algorithm.
+     */
+    void restore(long[] state);
+}
@@ -0,0 +1,74 @@
+package com.tribal.challenge.services;
+
+/**
+ * Exact sliding window kept in a ring of the last {@code maxAllowed} request times. The slot about
+ * to be overwritten is always the oldest request, so a check is a single comparison.
+ */
+class RingBufferWindow implements RequestWindow {
+
+    private long[] requestTimes = new long[0];
+    private int head;
+
+    @Override
+    public synchronized boolean tryAcquire(long now, RequestLimit limit) {
+        if(requestTimes.length != limit.getMaxAllowed()){
+            resize(limit.getMaxAllowed());
+        }
+
+        if(requestTimes.length == 0 || requestTimes[head] > now - limit.getWindowMillis()){
+            return false;
+        }
+
+        requestTimes[head] = now;
+        head = (head + 1) % requestTimes.length;
+
+        return true;
+    }
+
+    @Override
+    public synchronized long retryAfterMillis(long now, RequestLimit limit) {
+        if(requestTimes.length != limit.getMaxAllowed()){
+            resize(limit.getMaxAllowed());
+        }
+
+        if(requestTimes.length == 0){
+            return limit.getWindowMillis();
+        }
+
+        return Math.max(requestTimes[head] + limit.getWindowMillis() - now, 0);
+    }
+
+    // Head first, then the ring.
+    @Override
+    public synchronized long[] snapshot() {
+        var state = new long[requestTimes.length + 1];
+        state[0] = head;
+        System.arraycopy(requestTimes, 0, state, 1, requestTimes.length);
+
+        return state;
+    }
+
+    @Override
+    public synchronized void restore(long[] state) {
+        if(state.length == 0){
+            return;
+        }
+
+        requestTimes = new long[state.length - 1];
+        System.arraycopy(state, 1, requestTimes, 0, requestTimes.length);
+        head = requestTimes.length == 0 ? 0 : Math.floorMod(state[0], requestTimes.length);
+    }
+
+    private void resize(int maxAllowed){
+        var resized = new long[Math.max(maxAllowed, 0)];
+
+        // Keep the newest requests, walking backwards from the last written slot.
+        for(var i = 1; i <= Math.min(resized.length, requestTimes.length); i++){
+            var from = Math.floorMod(head - i, requestTimes.length);
+            resized[resized.length - i] = requestTimes[from];
+        }
+
+        requestTimes = resized;
+        head = 0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.tribal.challenge.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Approximated sliding window built from the counts of the current and the previous fixed window,
+ * the previous one weighted by how much of it still overlaps the sliding window. Both counters and
+ * the window index are packed in one long: index (32 bits) | previous (16 bits) | current (16 bits), so a
+ * limit can be at most {@link #MAX_COUNT} requests per window.
+ */
+class SlidingCounterWindow implements RequestWindow {
+
+    static final int MAX_COUNT = 0xFFFF;
+
+    private final AtomicLong counters = new AtomicLong();
+
+    @Override
+    public boolean tryAcquire(long now, RequestLimit limit) {
+        var windowMillis = limit.getWindowMillis();
+        var windowIndex = (int) (now / windowMillis);
+        var overlap = 1D - (double) (now % windowMillis) / windowMillis;
+
+        while (true) {
+            var packed = counters.get();
+            var storedIndex = (int) (packed >>> 32);
+            var previous = (int) (packed >>> 16) & MAX_COUNT;
+            var current = (int) packed & MAX_COUNT;
+
+            if(storedIndex != windowIndex){
+                previous = windowIndex - storedIndex == 1 ? current : 0;
+                current = 0;
+            }
+
+            if(previous * overlap + current >= limit.getMaxAllowed()){
+                return false;
+            }
+
+            var next = ((long) windowIndex << 32)
+                    | ((long) previous << 16)
+                    | Math.min(current + 1, MAX_COUNT);
+
+            if(counters.compareAndSet(packed, next)){
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public long retryAfterMillis(long now, RequestLimit limit) {
+        var windowMillis = limit.getWindowMillis();
+        var windowIndex = (int) (now / windowMillis);
+        var elapsed = now % windowMillis;
+
+        var packed = counters.get();
+        var storedIndex = (int) (packed >>> 32);
+        var previous = (int) (packed >>> 16) & MAX_COUNT;
+        var current = (int) packed & MAX_COUNT;
+
+        if(storedIndex != windowIndex){
+            previous = windowIndex - storedIndex == 1 ? current : 0;
+            current = 0;
+        }
+
+        var maxAllowed = limit.getMaxAllowed();
+
+        if(current >= maxAllowed){
+            // Wait for the next window, where the current count becomes the weighted previous one.
+            return windowMillis - elapsed + fadeOut(windowMillis, maxAllowed, current);
+        }
+
+        if(previous == 0){
+            return 0;
+        }
+
+        return Math.max(fadeOut(windowMillis, maxAllowed - current, previous) - elapsed, 0);
+    }
+
+    // First elapsed millis t of a window where previous * (1 - t / window) drops below allowed.
+    private long fadeOut(long windowMillis, int allowed, int previous){
+        return (long) Math.floor(windowMillis * (1D - (double) allowed / previous)) + 1;
+    }
+
+    @Override
+    public long[] snapshot() {
+        return new long[]{counters.get()};
+    }
+
+    @Override
+    public void restore(long[] state) {
+        if(state.length == 1){
+            counters.set(state[0]);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.tribal.challenge.services;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exact log of the requests inside the window, replaced with copy-on-write on every accepted request.
+ */
+class SlidingLogWindow implements RequestWindow {
+
+    private static final long[] NO_REQUESTS = new long[0];
+
+    private final AtomicReference<long[]> requestLog = new AtomicReference<>(NO_REQUESTS);
+
+    @Override
+    public boolean tryAcquire(long now, RequestLimit limit) {
+        var olderRequestAllowed = now - limit.getWindowMillis();
+
+        while (true) {
+            var current = requestLog.get();
+
+            var liveRequests = 0;
+            for(var requestedAt: current){
+                if(requestedAt > olderRequestAllowed){
+                    liveRequests++;
+                }
+            }
+
+            if(liveRequests >= limit.getMaxAllowed()){
+                return false;
+            }
+
+            var next = new long[liveRequests + 1];
+            var i = 0;
+            for(var requestedAt: current){
+                if(requestedAt > olderRequestAllowed){
+                    next[i++] = requestedAt;
+                }
+            }
+            next[i] = now;
+
+            if(requestLog.compareAndSet(current, next)){
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public long retryAfterMillis(long now, RequestLimit limit) {
+        var olderRequestAllowed = now - limit.getWindowMillis();
+        var current = requestLog.get();
+
+        var liveRequests = 0;
+        var oldest = Long.MAX_VALUE;
+        for(var requestedAt: current){
+            if(requestedAt > olderRequestAllowed){
+                liveRequests++;
+                oldest = Math.min(oldest, requestedAt);
+            }
+        }
+
+        return liveRequests < limit.getMaxAllowed() ? 0 : oldest - olderRequestAllowed;
+    }
+
+    @Override
+    public long[] snapshot() {
+        // The log is never modified once published, it can be handed out as is.
+        return requestLog.get();
+    }
+
+    @Override
+    public void restore(long[] state) {
+        requestLog.set(state.clone());
+    }
+}
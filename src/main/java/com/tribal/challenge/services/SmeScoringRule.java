@@ -0,0 +1,25 @@
+package com.tribal.challenge.services;
+
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.enums.BusinessType;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SmeScoringRule implements CreditScoringRule {
+
+    private final LiveSettingsHolder settings;
+
+    public SmeScoringRule(LiveSettingsHolder settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public BusinessType businessType() {
+        return BusinessType.SME;
+    }
+
+    @Override
+    public double recommendedCredit(CreditRequestData requestData) {
+        return requestData.getMonthlyRevenue() * settings.current().monthlyRevenueFactor();
+    }
+}
@@ -0,0 +1,28 @@
+package com.tribal.challenge.services;
+
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.enums.BusinessType;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StartupScoringRule implements CreditScoringRule {
+
+    private final LiveSettingsHolder settings;
+
+    public StartupScoringRule(LiveSettingsHolder settings) {
+        this.settings = settings;
+    }
+
+    @Override
+    public BusinessType businessType() {
+        return BusinessType.STARTUP;
+    }
+
+    @Override
+    public double recommendedCredit(CreditRequestData requestData) {
+        var current = settings.current();
+
+        return Math.max(requestData.getCashBalance() * current.cashBalanceFactor(),
+                requestData.getMonthlyRevenue() * current.monthlyRevenueFactor());
+    }
+}
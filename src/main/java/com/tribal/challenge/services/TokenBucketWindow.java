@@ -0,0 +1,92 @@
+package com.tribal.challenge.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket holding up to maxAllowed tokens, refilled at maxAllowed tokens per window. The bucket
+ * is packed in a single long: refill clock in millis since {@link #EPOCH} (40 bits) | milli-tokens (24 bits),
+ * so a limit can be at most {@link #MAX_REQUESTS} requests per window.
+ */
+class TokenBucketWindow implements RequestWindow {
+
+    // 2021-01-01T00:00:00Z, 40 bits of millis from here last until 2055.
+    private static final long EPOCH = 1_609_459_200_000L;
+    private static final int TOKEN_BITS = 24;
+    private static final long MAX_MILLI_TOKENS = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI_TOKENS_PER_REQUEST = 1_000;
+    static final int MAX_REQUESTS = (int) (MAX_MILLI_TOKENS / MILLI_TOKENS_PER_REQUEST);
+
+    private final AtomicLong bucket = new AtomicLong();
+
+    @Override
+    public boolean tryAcquire(long now, RequestLimit limit) {
+        var capacity = capacity(limit);
+        var windowMillis = limit.getWindowMillis();
+        var sinceEpoch = now - EPOCH;
+
+        while (true) {
+            var packed = bucket.get();
+            var refilledAt = packed >>> TOKEN_BITS;
+            var tokens = packed & MAX_MILLI_TOKENS;
+            var elapsed = Math.max(sinceEpoch - refilledAt, 0);
+
+            var refill = Math.min(elapsed, windowMillis) * capacity / windowMillis;
+            if(tokens + refill >= capacity){
+                tokens = capacity;
+                refilledAt = sinceEpoch;
+            } else {
+                // Only advance the clock by the time the whole milli-tokens took, so partial refills add up.
+                tokens += refill;
+                refilledAt += refill * windowMillis / capacity;
+            }
+
+            if(tokens < MILLI_TOKENS_PER_REQUEST){
+                return false;
+            }
+
+            var next = (refilledAt << TOKEN_BITS) | (tokens - MILLI_TOKENS_PER_REQUEST);
+
+            if(bucket.compareAndSet(packed, next)){
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public long retryAfterMillis(long now, RequestLimit limit) {
+        var capacity = capacity(limit);
+        if(capacity < MILLI_TOKENS_PER_REQUEST){
+            return limit.getWindowMillis();
+        }
+
+        var packed = bucket.get();
+        var tokens = packed & MAX_MILLI_TOKENS;
+        var elapsed = Math.max(now - EPOCH - (packed >>> TOKEN_BITS), 0);
+        var refill = Math.min(elapsed, limit.getWindowMillis()) * capacity / limit.getWindowMillis();
+        var available = Math.min(tokens + refill, capacity);
+
+        if(available >= MILLI_TOKENS_PER_REQUEST){
+            return 0;
+        }
+
+        var missing = MILLI_TOKENS_PER_REQUEST - available;
+
+        return (missing * limit.getWindowMillis() + capacity - 1) / capacity;
+    }
+
+    private long capacity(RequestLimit limit){
+        return Math.min(Math.max(limit.getMaxAllowed(), 0) * MILLI_TOKENS_PER_REQUEST, MAX_MILLI_TOKENS);
+    }
+
+    @Override
+    public long[] snapshot() {
+        return new long[]{bucket.get()};
+    }
+
+    @Override
+    public void restore(long[] state) {
+        if(state.length == 1){
+            bucket.set(state[0]);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS credit_line (
+    client      VARCHAR(64)      NOT NULL PRIMARY KEY,
+    id          VARCHAR(36)      NOT NULL,
+    status      VARCHAR(16)      NOT NULL,
+    credit_line DOUBLE PRECISION NOT NULL,
+    created_at  TIMESTAMP
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS credit_line_id ON credit_line (id);
@@ -0,0 +1,83 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.config.AdaptiveConcurrencyFilter;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AdaptiveConcurrencyFilterTest {
+
+    @Test
+    public void filter_OverTheLimit_ServiceUnavailableWithoutCallingTheHandler(){
+        var filter = new AdaptiveConcurrencyFilter(true, 1, 1, 10, 200, 0.9);
+        var running = Sinks.<Void>empty();
+        var first = filter.filter(creditRequest(), it -> running.asMono()).toFuture();
+
+        var exchange = creditRequest();
+        var handled = new AtomicBoolean();
+        filter.filter(exchange, it -> Mono.fromRunnable(() -> handled.set(true))).block();
+
+        Assertions.assertFalse(handled.get());
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exchange.getResponse().getStatusCode());
+        Assertions.assertEquals("1", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals(1, filter.shedRequests());
+        Assertions.assertEquals(Boolean.TRUE, exchange.getAttribute(AdaptiveConcurrencyFilter.SHED_ATTRIBUTE));
+
+        running.tryEmitEmpty();
+        first.join();
+        Assertions.assertEquals(0, filter.inFlight());
+    }
+
+    @Test
+    public void filter_SlowResponses_LowersTheLimitOncePerLatencyTarget(){
+        var filter = new AdaptiveConcurrencyFilter(true, 20, 10, 100, 5, 0.5);
+
+        for(var i = 0; i < 3; i++){
+            filter.filter(creditRequest(), it -> Mono.delay(Duration.ofMillis(10)).then()).block();
+        }
+
+        Assertions.assertTrue(filter.limit() < 20, "Limit " + filter.limit());
+        Assertions.assertTrue(filter.limit() >= 10, "Limit " + filter.limit());
+    }
+
+    @Test
+    public void filter_FastResponsesAtFullUse_RaisesTheLimit(){
+        var filter = new AdaptiveConcurrencyFilter(true, 2, 1, 10, 1_000, 0.9);
+
+        for(var i = 0; i < 20; i++){
+            var running = Sinks.<Void>empty();
+            var first = filter.filter(creditRequest(), it -> running.asMono()).toFuture();
+            filter.filter(creditRequest(), it -> Mono.empty()).block();
+            running.tryEmitEmpty();
+            first.join();
+        }
+
+        Assertions.assertTrue(filter.limit() > 2, "Limit " + filter.limit());
+    }
+
+    @Test
+    public void filter_Actuator_NeverShed(){
+        var filter = new AdaptiveConcurrencyFilter(true, 1, 1, 1, 200, 0.9);
+        var running = Sinks.<Void>empty();
+        filter.filter(creditRequest(), it -> running.asMono()).subscribe();
+
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/actuator/prometheus"));
+        var handled = new AtomicBoolean();
+        filter.filter(exchange, it -> Mono.fromRunnable(() -> handled.set(true))).block();
+
+        Assertions.assertTrue(handled.get());
+        running.tryEmitEmpty();
+    }
+
+    private MockServerWebExchange creditRequest(){
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.models.ClientKey;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+
+public class ClientKeyTest {
+
+    @Test
+    public void of_SameIpv4_EqualKeys() throws Exception {
+        var fromString = ClientKey.of("10.0.0.1");
+        var fromAddress = ClientKey.of(InetAddress.getByName("10.0.0.1"));
+
+        Assertions.assertEquals(fromString, fromAddress);
+        Assertions.assertEquals(fromString.hashCode(), fromAddress.hashCode());
+        Assertions.assertNotEquals(ClientKey.of("10.0.0.2"), fromString);
+    }
+
+    @Test
+    public void toString_Ipv6_MatchesHostAddress() throws Exception {
+        var address = InetAddress.getByName("2001:db8::1");
+
+        Assertions.assertEquals(address.getHostAddress(), ClientKey.of(address).toString());
+        Assertions.assertEquals(ClientKey.of(address), ClientKey.of(address.getHostAddress()));
+    }
+
+    @Test
+    public void toString_Ipv4_MatchesHostAddress(){
+        Assertions.assertEquals("192.168.255.7", ClientKey.of("192.168.255.7").toString());
+    }
+
+    @Test
+    public void of_NotAnAddress_KeptAsIs(){
+        var key = ClientKey.of("client-a");
+
+        Assertions.assertEquals("client-a", key.toString());
+        Assertions.assertEquals(ClientKey.of("client-a"), key);
+    }
+
+    @Test
+    public void subnet_AddressesOfSameNetwork_SameSubnet(){
+        Assertions.assertEquals(ClientKey.of("10.1.2.3").subnet(), ClientKey.of("10.1.2.200").subnet());
+        Assertions.assertNotEquals(ClientKey.of("10.1.2.3").subnet(), ClientKey.of("10.1.3.3").subnet());
+        Assertions.assertEquals("10.1.2.0/24", ClientKey.of("10.1.2.3").subnet().toString());
+        Assertions.assertEquals(ClientKey.of("2001:db8::1").subnet(), ClientKey.of("2001:db8::ffff:1").subnet());
+        Assertions.assertNotEquals(ClientKey.of("10.1.2.0"), ClientKey.of("10.1.2.3").subnet());
+        Assertions.assertNull(ClientKey.of("client-a").subnet());
+    }
+}
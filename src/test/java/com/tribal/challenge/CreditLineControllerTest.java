@@ -0,0 +1,50 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.config.exceptions.GeneralErrorHandler;
+import com.tribal.challenge.controllers.CreditLineController;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditEvaluationView;
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.services.CreditLineService;
+import com.tribal.challenge.services.IdempotencyCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+public class CreditLineControllerTest {
+
+    private static final String REQUEST = "{\"foundingType\":\"SME\",\"monthlyRevenue\":500,\"requestedCreditLine\":100}\n";
+
+    private final CreditLineService creditLineService = Mockito.mock(CreditLineService.class);
+    private final WebTestClient client = WebTestClient.bindToRouterFunction(
+            new CreditLineController(creditLineService, new GeneralErrorHandler(), new IdempotencyCache(100, 60))
+                    .creditLineRoutes()
+    ).build();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void evaluateCreditLines_NdjsonBatch_RequestsStreamedToTheServiceOneByOne(){
+        Mockito.when(creditLineService.evaluateCreditLines(Mockito.any(), Mockito.any(ClientKey.class)))
+                .thenAnswer(invocation -> ((Flux<CreditRequestData>) invocation.getArgument(0))
+                        .index()
+                        .map(it -> CreditEvaluationView.approved(it.getT1(), it.getT2())));
+
+        var results = client.post().uri(CreditLineController.CREDITS_PATH + "/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(REQUEST.repeat(3))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(CreditEvaluationView.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(100, results.get(2).getCreditLine());
+    }
+}
@@ -0,0 +1,177 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.CreditRequestView;
+import com.tribal.challenge.models.enums.BusinessType;
+import com.tribal.challenge.repository.CreditLineRepositoryMappedLogImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class CreditLineRepositoryMappedLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void retrieveCreditLine_AfterRestart_ReturnsSavedCreditLine(){
+        var ip = "127.0.3.1";
+        var repository = newRepository();
+        var saved = repository.saveCreditRequest(creditRequest(), ip).block();
+        repository.shutdown();
+
+        var recovered = newRepository();
+        var result = recovered.retrieveCreditLine(ip).block();
+        recovered.shutdown();
+
+        Assertions.assertNotNull(saved);
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(saved.getId(), result.getId());
+        Assertions.assertEquals(saved.getStatus(), result.getStatus());
+        Assertions.assertEquals(saved.getCreditLine(), result.getCreditLine());
+        Assertions.assertEquals(saved.getCreatedAt(), result.getCreatedAt());
+    }
+
+    @Test
+    public void retrieveCreditLineById_AfterRestart_ReturnsSavedCreditLine(){
+        var repository = newRepository();
+        var saved = repository.saveCreditRequest(creditRequest(), "127.0.3.5").block();
+        repository.shutdown();
+
+        var recovered = newRepository();
+        var result = recovered.retrieveCreditLineById(saved.getId()).block();
+        var unknown = recovered.retrieveCreditLineById("not-an-id").block();
+        recovered.shutdown();
+
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(saved.getCreditLine(), result.getCreditLine());
+        Assertions.assertNull(unknown);
+    }
+
+    @Test
+    public void saveCreditRequest_DuplicatedRequest_ReturnsFirstCreditLine(){
+        var ip = "127.0.3.2";
+        var repository = newRepository();
+
+        var first = repository.saveCreditRequest(creditRequest(), ip).block();
+        var second = repository.saveCreditRequest(creditRequest(), ip).block();
+        repository.shutdown();
+
+        Assertions.assertNotNull(first);
+        Assertions.assertNotNull(second);
+        Assertions.assertEquals(first.getId(), second.getId());
+    }
+
+    @Test
+    public void retrieveCreditLine_TornRecordAtTail_KeepsPreviousRecords() throws IOException {
+        var repository = newRepository();
+        repository.saveCreditRequest(creditRequest(), "127.0.3.3").block();
+        repository.saveCreditRequest(creditRequest(), "127.0.3.4").block();
+        repository.shutdown();
+
+        // header (8) + type (1) + client (2 + 9) + id (16) + status (2 + 8) + credit line (8) + created at (12)
+        var firstRecordSize = 66;
+        try (var segment = new RandomAccessFile(directory.resolve("segment-00000001.log").toFile(), "rw")) {
+            segment.seek(firstRecordSize + 20);
+            segment.write(0x7F);
+        }
+
+        var recovered = newRepository();
+
+        Assertions.assertNotNull(recovered.retrieveCreditLine("127.0.3.3").block());
+        Assertions.assertNull(recovered.retrieveCreditLine("127.0.3.4").block());
+        Assertions.assertNotNull(recovered.saveCreditRequest(creditRequest(), "127.0.3.4").block());
+        recovered.shutdown();
+    }
+
+    @Test
+    public void shutdown_SavesStillQueued_CompletedAndKept() throws Exception {
+        // Nothing is flushed in the background, only shutdown completes the saves.
+        var repository = newRepository(3_600_000);
+        var saves = IntStream.rangeClosed(1, 20)
+                .mapToObj(it -> repository.saveCreditRequest(creditRequest(), "127.0.4." + it).toFuture())
+                .collect(Collectors.toList());
+        repository.shutdown();
+
+        for(var save: saves){
+            Assertions.assertNotNull(save.get(1, TimeUnit.SECONDS));
+        }
+
+        var recovered = newRepository();
+        for(var i = 1; i <= 20; i++){
+            Assertions.assertNotNull(recovered.retrieveCreditLine("127.0.4." + i).block());
+        }
+        recovered.shutdown();
+    }
+
+    @Test
+    public void new_SegmentWithDeadRecords_CompactedOnStartup() throws IOException {
+        // Logs written apart and put together, so the second segment repeats the client of the first one.
+        var first = saveInOwnLog("first", "127.0.3.6");
+        var second = saveInOwnLog("second", "127.0.3.6", "127.0.3.7");
+        var third = saveInOwnLog("third", "127.0.3.8");
+        copySegment("first", 1);
+        copySegment("second", 2);
+        copySegment("third", 3);
+
+        var repository = newRepository();
+        repository.shutdown();
+
+        Assertions.assertFalse(Files.exists(directory.resolve("segment-00000002.log")));
+
+        var recovered = newRepository();
+        var kept = recovered.retrieveCreditLine("127.0.3.6").block();
+        var moved = recovered.retrieveCreditLine("127.0.3.7").block();
+        var movedById = recovered.retrieveCreditLineById(second.get(1).getId()).block();
+        var untouched = recovered.retrieveCreditLine("127.0.3.8").block();
+        recovered.shutdown();
+
+        Assertions.assertEquals(first.get(0).getId(), kept.getId());
+        Assertions.assertEquals(second.get(1).getId(), moved.getId());
+        Assertions.assertNotNull(movedById);
+        Assertions.assertEquals(third.get(0).getId(), untouched.getId());
+    }
+
+    private void copySegment(String log, int id) throws IOException {
+        Files.copy(directory.resolve(log).resolve("segment-00000001.log"), directory.resolve(String.format("segment-%08d.log", id)));
+    }
+
+    private List<CreditRequestView> saveInOwnLog(String name, String... ips){
+        var repository = new CreditLineRepositoryMappedLogImpl(directory.resolve(name).toString(), 64, 5, 0.4);
+        var saved = Arrays.stream(ips)
+                .map(it -> repository.saveCreditRequest(creditRequest(), it).block())
+                .collect(Collectors.toList());
+        repository.shutdown();
+
+        return saved;
+    }
+
+    private CreditLineRepositoryMappedLogImpl newRepository(){
+        return newRepository(5);
+    }
+
+    private CreditLineRepositoryMappedLogImpl newRepository(long fsyncInterval){
+        return new CreditLineRepositoryMappedLogImpl(directory.toString(), 64, fsyncInterval, 0.4);
+    }
+
+    private CreditRequestData creditRequest(){
+        var data = new CreditRequestData();
+        data.setFoundingType(BusinessType.SME.name());
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(100);
+        data.setRequestedDate(LocalDateTime.of(2021, 8, 31, 4, 34, 57, 24_000_000));
+
+        return data;
+    }
+}
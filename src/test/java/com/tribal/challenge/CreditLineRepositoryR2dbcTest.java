@@ -0,0 +1,97 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.enums.BusinessType;
+import com.tribal.challenge.repository.CreditLineRepositoryR2dbcImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+@SpringBootTest
+@ActiveProfiles("r2dbc")
+public class CreditLineRepositoryR2dbcTest {
+
+    @Autowired
+    private CreditLineRepositoryR2dbcImpl creditLineRepository;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @Test
+    public void retrieveCreditLine_AfterSave_ReturnsSavedCreditLine(){
+        var ip = "127.0.4.1";
+
+        var saved = creditLineRepository.saveCreditRequest(creditRequest(), ip).block();
+        var result = creditLineRepository.retrieveCreditLine(ip).block();
+
+        Assertions.assertNotNull(saved);
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(saved.getId(), result.getId());
+        Assertions.assertEquals(saved.getCreditLine(), result.getCreditLine());
+        Assertions.assertEquals(saved.getCreatedAt(), result.getCreatedAt());
+    }
+
+    @Test
+    public void retrieveCreditLineById_AfterSave_ReturnsSavedCreditLine(){
+        var saved = creditLineRepository.saveCreditRequest(creditRequest(), "127.0.4.2").block();
+
+        Assertions.assertNotNull(saved);
+        var result = creditLineRepository.retrieveCreditLineById(saved.getId()).block();
+
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(saved.getCreditLine(), result.getCreditLine());
+    }
+
+    @Test
+    public void saveCreditRequest_BurstOfClientsWithDuplicates_OneCreditLinePerClient(){
+        var saved = Flux.range(0, 200)
+                .flatMap(it -> creditLineRepository.saveCreditRequest(creditRequest(), "127.0.5." + it % 100))
+                .collectList()
+                .block();
+
+        Assertions.assertNotNull(saved);
+        Assertions.assertEquals(200, saved.size());
+
+        for(var client = 0; client < 100; client++){
+            var stored = creditLineRepository.retrieveCreditLine("127.0.5." + client).block();
+
+            Assertions.assertNotNull(stored);
+            Assertions.assertEquals(2, saved.stream().filter(it -> it.getId().equals(stored.getId())).count());
+        }
+    }
+
+    @Test
+    public void shutdown_SavesStillBuffered_WrittenBeforeStopping(){
+        // The batch would wait a minute to fill up, only the shutdown writes it.
+        var repository = new CreditLineRepositoryR2dbcImpl(databaseClient, 32, 60_000, 4);
+        var saves = Flux.range(0, 3)
+                .map(it -> repository.saveCreditRequest(creditRequest(), "127.0.6." + it).toFuture())
+                .collectList()
+                .block();
+
+        repository.shutdown();
+
+        Assertions.assertNotNull(saves);
+        for(var i = 0; i < saves.size(); i++){
+            Assertions.assertTrue(saves.get(i).isDone());
+            Assertions.assertEquals(saves.get(i).join().getId(),
+                    creditLineRepository.retrieveCreditLine("127.0.6." + i).block().getId());
+        }
+    }
+
+    private CreditRequestData creditRequest(){
+        var data = new CreditRequestData();
+        data.setFoundingType(BusinessType.SME.name());
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(100);
+        data.setRequestedDate(LocalDateTime.of(2021, 8, 31, 4, 34, 57));
+
+        return data;
+    }
+}
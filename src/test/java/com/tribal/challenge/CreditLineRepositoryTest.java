@@ -0,0 +1,61 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.CreditRequestView;
+import com.tribal.challenge.models.enums.BusinessType;
+import com.tribal.challenge.repository.CreditLineRepositoryInMemoryImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class CreditLineRepositoryTest {
+
+    private static final int THREADS = 16;
+    private static final int CLIENTS = 2_000;
+    private static final int DUPLICATES = 4;
+
+    @Test
+    public void saveCreditRequest_ConcurrentDuplicatedRequests_OneCreditLinePerClient() throws Exception {
+        var repository = new CreditLineRepositoryInMemoryImpl();
+        var executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            var calls = IntStream.range(0, CLIENTS * DUPLICATES)
+                    .mapToObj(it -> (Callable<CreditRequestView>) () -> repository
+                            .saveCreditRequest(creditRequest(), "10.0." + (it % CLIENTS) / 256 + "." + (it % CLIENTS) % 256)
+                            .block())
+                    .collect(Collectors.toList());
+
+            var saved = executor.invokeAll(calls);
+
+            for(var client = 0; client < CLIENTS; client++){
+                var ip = "10.0." + client / 256 + "." + client % 256;
+                var stored = repository.retrieveCreditLine(ip).block();
+
+                Assertions.assertNotNull(stored, "Lost credit line for " + ip);
+                Assertions.assertSame(stored, repository.retrieveCreditLineById(stored.getId()).block());
+
+                for(var duplicate = 0; duplicate < DUPLICATES; duplicate++){
+                    Assertions.assertEquals(stored.getId(), saved.get(client + duplicate * CLIENTS).get().getId());
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private CreditRequestData creditRequest(){
+        var data = new CreditRequestData();
+        data.setFoundingType(BusinessType.SME.name());
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(100);
+
+        return data;
+    }
+}
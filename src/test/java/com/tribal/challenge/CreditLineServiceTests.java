@@ -2,23 +2,34 @@ package com.tribal.challenge;
 
 import com.tribal.challenge.config.exceptions.BusinessException;
 import com.tribal.challenge.models.enums.BusinessType;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditEvaluationView;
 import com.tribal.challenge.models.CreditRequestData;
 import com.tribal.challenge.services.CreditLineService;
 import com.tribal.challenge.services.RateLimitService;
+import com.tribal.challenge.services.RateLimitVerdict;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
 @SpringBootTest
 public class CreditLineServiceTests {
 
     @Autowired
     private CreditLineService creditLineService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
     private RateLimitService rateLimitService;
 
@@ -30,11 +41,11 @@ public class CreditLineServiceTests {
         data.setMonthlyRevenue(500);
         data.setRequestedCreditLine(100);
 
-        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.anyString()))
+        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(0));
-        Mockito.when(rateLimitService.resetUserAttempts(Mockito.anyString()))
+        Mockito.when(rateLimitService.resetUserAttempts(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(true));
-        Mockito.when(rateLimitService.blockUser(Mockito.anyString()))
+        Mockito.when(rateLimitService.blockUser(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(true));
 
         var result= creditLineService.requestCreditLine(data, ip).block();
@@ -52,11 +63,11 @@ public class CreditLineServiceTests {
         data.setCashBalance(600);
         data.setRequestedCreditLine(200);
 
-        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.anyString()))
+        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(0));
-        Mockito.when(rateLimitService.resetUserAttempts(Mockito.anyString()))
+        Mockito.when(rateLimitService.resetUserAttempts(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(true));
-        Mockito.when(rateLimitService.blockUser(Mockito.anyString()))
+        Mockito.when(rateLimitService.blockUser(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(true));
 
         var result= creditLineService.requestCreditLine(data, ip).block();
@@ -74,11 +85,11 @@ public class CreditLineServiceTests {
         data.setCashBalance(500);
         data.setRequestedCreditLine(100);
 
-        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.anyString()))
+        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(0));
-        Mockito.when(rateLimitService.resetUserAttempts(Mockito.anyString()))
+        Mockito.when(rateLimitService.resetUserAttempts(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(true));
-        Mockito.when(rateLimitService.blockUser(Mockito.anyString()))
+        Mockito.when(rateLimitService.blockUser(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(true));
 
         var result= creditLineService.requestCreditLine(data, ip).block();
@@ -87,6 +98,53 @@ public class CreditLineServiceTests {
         Assertions.assertEquals(100, result.getCreditLine());
     }
 
+    @Test
+    public void requestCreditLine_ConcurrentRejectedRequests_AttemptCountedOnce(){
+        var client = ClientKey.of("127.0.0.7");
+        var data = new CreditRequestData();
+        data.setFoundingType(BusinessType.SME.name());
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(1_000);
+
+        Mockito.when(rateLimitService.retrieveUserAttempts(client))
+                .thenReturn(Mono.just(0).delayElement(Duration.ofMillis(100)));
+        Mockito.when(rateLimitService.blockUser(client))
+                .thenReturn(Mono.just(true));
+
+        var results = Flux.range(0, 4)
+                .flatMap(it -> creditLineService.requestCreditLine(data, client)
+                        .map(Object::toString)
+                        .onErrorResume(BusinessException.class, ex -> Mono.just(ex.getMessage())))
+                .collectList()
+                .block();
+
+        Assertions.assertEquals(4, results.size());
+        results.forEach(it -> Assertions.assertEquals(BusinessException.CREDIT_LINE_REJECTED.getMessage(), it));
+        Mockito.verify(rateLimitService, Mockito.times(1)).retrieveUserAttempts(client);
+        Mockito.verify(rateLimitService, Mockito.times(1)).blockUser(client);
+    }
+
+    @Test
+    public void retrieveCreditLineById_SavedCreditLineId_ReturnsCreditLine(){
+        var ip = "127.0.0.5";
+        var data = new CreditRequestData();
+        data.setFoundingType(BusinessType.SME.name());
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(100);
+
+        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(0));
+        Mockito.when(rateLimitService.resetUserAttempts(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(true));
+
+        var saved = creditLineService.requestCreditLine(data, ip).block();
+        var result = creditLineService.retrieveCreditLineById(saved.getId()).block();
+
+        Assertions.assertNotNull(result);
+        Assertions.assertEquals(saved.getId(), result.getId());
+        Assertions.assertNull(creditLineService.retrieveCreditLineById("unknown").block());
+    }
+
     @Test
     public void requestCreditLine_retryAfterSuccess_ReturnSameCreditLine(){
         var ip = "127.0.0.4";
@@ -96,11 +154,11 @@ public class CreditLineServiceTests {
         data.setCashBalance(500);
         data.setRequestedCreditLine(100);
 
-        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.anyString()))
+        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(0));
-        Mockito.when(rateLimitService.resetUserAttempts(Mockito.anyString()))
+        Mockito.when(rateLimitService.resetUserAttempts(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(true));
-        Mockito.when(rateLimitService.blockUser(Mockito.anyString()))
+        Mockito.when(rateLimitService.blockUser(Mockito.any(ClientKey.class)))
                 .thenReturn(Mono.just(true));
 
         var resultSuccess= creditLineService.requestCreditLine(data, ip).block();
@@ -122,11 +180,99 @@ public class CreditLineServiceTests {
         data.setCashBalance(500);
         data.setRequestedCreditLine(100);
 
-        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.anyString()))
+        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.any(ClientKey.class)))
                         .thenReturn(Mono.just(3));
 
        Assertions.assertThrows(BusinessException.class,
                () -> creditLineService.requestCreditLine(invalidData, ip).block()
        );
     }
+
+    @Test
+    public void requestCreditLine_CreditLineAccepted_ApprovalCountedByBusinessType(){
+        var ip = "127.0.0.6";
+        var data = new CreditRequestData();
+        data.setFoundingType(BusinessType.SME.name());
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(100);
+
+        Mockito.when(rateLimitService.retrieveUserAttempts(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(0));
+        Mockito.when(rateLimitService.resetUserAttempts(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(true));
+
+        var approvals = meterRegistry.get("credit_line.approved").tag("business_type", "sme").counter();
+        var before = approvals.count();
+
+        creditLineService.requestCreditLine(data, ip).block();
+
+        Assertions.assertEquals(before + 1, approvals.count());
+        Assertions.assertTrue(meterRegistry.get("credit_line.request").timer().count() > 0);
+    }
+
+    @Test
+    public void evaluateCreditLines_MixedRequests_EvaluatedByIndexWithoutCountingAttempts(){
+        var approved = new CreditRequestData();
+        approved.setFoundingType(BusinessType.SME.name());
+        approved.setMonthlyRevenue(500);
+        approved.setRequestedCreditLine(100);
+
+        var rejected = new CreditRequestData();
+        rejected.setFoundingType(BusinessType.SME.name());
+        rejected.setMonthlyRevenue(500);
+        rejected.setRequestedCreditLine(101);
+
+        var invalid = new CreditRequestData();
+
+        var results = creditLineService.evaluateCreditLines(Flux.just(approved, rejected, invalid), ClientKey.of("127.0.0.20"))
+                .collectMap(CreditEvaluationView::getIndex)
+                .block();
+
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals("APPROVED", results.get(0L).getStatus());
+        Assertions.assertEquals(100, results.get(0L).getCreditLine());
+        Assertions.assertEquals("REJECTED", results.get(1L).getStatus());
+        Assertions.assertEquals("REJECTED", results.get(1L).getErrorCode());
+        Assertions.assertEquals("VALIDATION", results.get(2L).getErrorCode());
+        Mockito.verifyNoInteractions(rateLimitService);
+    }
+
+    @Test
+    public void evaluateCreditLines_ChunkRateLimited_EndsWithRateLimitedResult(){
+        var client = ClientKey.of("127.0.0.21");
+        Mockito.when(rateLimitService.verdict(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(RateLimitVerdict.ALLOWED), Mono.just(RateLimitVerdict.rateLimited(1_000)));
+        var read = new AtomicLong();
+        var requests = Flux.range(0, 1_000)
+                .map(it -> new CreditRequestData())
+                .doOnNext(it -> read.incrementAndGet());
+
+        var results = creditLineService.evaluateCreditLines(requests, client)
+                .collectMap(CreditEvaluationView::getIndex)
+                .block();
+
+        // The first chunk is covered by the permit of the request, the second takes one and the third is refused.
+        Assertions.assertNotNull(results);
+        Assertions.assertEquals(201, results.size());
+        Assertions.assertEquals("VALIDATION", results.get(199L).getErrorCode());
+        Assertions.assertEquals("RATE_LIMITED", results.get(200L).getErrorCode());
+        Assertions.assertTrue(read.get() < 1_000);
+        Mockito.verify(rateLimitService, Mockito.times(2)).verdict(Mockito.any(ClientKey.class));
+    }
+
+    @Test
+    public void evaluateCreditLines_OverMaxSize_EndsWithValidationResult(){
+        var client = ClientKey.of("127.0.0.22");
+        Mockito.when(rateLimitService.verdict(Mockito.any(ClientKey.class))).thenReturn(Mono.just(RateLimitVerdict.ALLOWED));
+        var requests = Flux.range(0, 100_010).map(it -> new CreditRequestData());
+
+        var last = creditLineService.evaluateCreditLines(requests, client)
+                .filter(it -> it.getIndex() == 100_000)
+                .blockLast();
+
+        Assertions.assertNotNull(last);
+        Assertions.assertEquals("VALIDATION", last.getErrorCode());
+        Assertions.assertEquals("A batch takes up to 100000 requests", last.getMessage());
+    }
 }
@@ -0,0 +1,60 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.models.CreditRequestData;
+import com.tribal.challenge.models.enums.BusinessType;
+import com.tribal.challenge.services.CreditScoringEngine;
+import com.tribal.challenge.services.LiveSettings;
+import com.tribal.challenge.services.LiveSettingsHolder;
+import com.tribal.challenge.services.SmeScoringRule;
+import com.tribal.challenge.services.StartupScoringRule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class CreditScoringEngineTest {
+
+    private final LiveSettingsHolder settings = new LiveSettingsHolder(new LiveSettings(3, 3, 2, 30, 3, 5));
+    private final CreditScoringEngine scoringEngine = new CreditScoringEngine(
+            List.of(new SmeScoringRule(settings), new StartupScoringRule(settings)));
+
+    @Test
+    public void recommendedCredit_Startup_BiggestOfCashBalanceAndMonthlyRevenue(){
+        var data = new CreditRequestData();
+        data.setFoundingType("Startup");
+        data.setCashBalance(600);
+        data.setMonthlyRevenue(500);
+
+        Assertions.assertEquals(200, scoringEngine.recommendedCredit(data), 1e-9);
+
+        data.setCashBalance(30);
+        Assertions.assertEquals(100, scoringEngine.recommendedCredit(data), 1e-9);
+    }
+
+    @Test
+    public void approves_SMEOverRecommendedCredit_Rejected(){
+        var data = new CreditRequestData();
+        data.setFoundingType("sme");
+        data.setMonthlyRevenue(500);
+        data.setRequestedCreditLine(100);
+
+        Assertions.assertTrue(scoringEngine.approves(data));
+
+        data.setRequestedCreditLine(100.01);
+        Assertions.assertFalse(scoringEngine.approves(data));
+    }
+
+    @Test
+    public void new_BusinessTypeWithoutRule_Fails(){
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new CreditScoringEngine(List.of(new SmeScoringRule(settings))));
+    }
+
+    @Test
+    public void of_AnyCase_SameBusinessType(){
+        Assertions.assertEquals(BusinessType.SME, BusinessType.of("sMe"));
+        Assertions.assertEquals(BusinessType.STARTUP, BusinessType.of("STARTUP"));
+        Assertions.assertFalse(BusinessType.isValid("corporate"));
+        Assertions.assertFalse(BusinessType.isValid(null));
+    }
+}
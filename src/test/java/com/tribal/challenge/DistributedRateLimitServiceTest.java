@@ -0,0 +1,204 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.repository.RateLimitCounterRepositoryRedisImpl;
+import com.tribal.challenge.services.DistributedRateLimitService;
+import com.tribal.challenge.services.LiveSettings;
+import com.tribal.challenge.services.LiveSettingsHolder;
+import com.tribal.challenge.services.RateLimitServiceImpl;
+import com.tribal.challenge.services.RateLimitStateStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class DistributedRateLimitServiceTest {
+
+    private InProcessRedis redis;
+    private final List<RateLimitStateStore> stateStores = new ArrayList<>();
+    private final List<RateLimitCounterRepositoryRedisImpl> counterRepositories = new ArrayList<>();
+
+    @BeforeEach
+    public void startRedis() throws IOException {
+        redis = new InProcessRedis();
+    }
+
+    @AfterEach
+    public void stopRedis() throws IOException {
+        stateStores.forEach(RateLimitStateStore::shutdown);
+        counterRepositories.forEach(RateLimitCounterRepositoryRedisImpl::shutdown);
+        redis.close();
+    }
+
+    @Test
+    public void checkRateLimit_RequestsSpreadOverInstances_SharesLimit(){
+        var ip = "127.0.2.1";
+        var instanceA = newInstance(redis.port());
+        var instanceB = newInstance(redis.port());
+
+        Assertions.assertTrue(instanceA.checkRateLimit(ip).block());
+        Assertions.assertTrue(instanceB.checkRateLimit(ip).block());
+        Assertions.assertTrue(instanceA.checkRateLimit(ip).block());
+
+        Assertions.assertFalse(instanceB.checkRateLimit(ip).block());
+    }
+
+    @Test
+    public void checkRateLimit_StoreUnreachable_FallsBackToLocalLimit() throws IOException {
+        var ip = "127.0.2.2";
+        var port = redis.port();
+        redis.close();
+
+        var instance = newInstance(port);
+
+        Assertions.assertTrue(instance.checkRateLimit(ip).block());
+        Assertions.assertTrue(instance.checkRateLimit(ip).block());
+        Assertions.assertTrue(instance.checkRateLimit(ip).block());
+        Assertions.assertFalse(instance.checkRateLimit(ip).block());
+    }
+
+    @Test
+    public void checkRateLimit_LeaseOfSeveralPermits_OneRoundTripPerLeaseAndExpirySetOnce(){
+        var ip = "127.0.2.3";
+        // A lease is capped to a tenth of the 40 requests allowed, 4 permits.
+        var instance = newInstance(redis.port(), 40, 16);
+
+        for(var i = 0; i < 8; i++){
+            Assertions.assertTrue(instance.checkRateLimit(ip).block());
+        }
+
+        Assertions.assertEquals(2, redis.received("INCRBY"));
+        Assertions.assertEquals(1, redis.received("EXPIRE") + redis.received("PEXPIRE"));
+    }
+
+    private DistributedRateLimitService newInstance(int port){
+        return newInstance(port, 3, 1);
+    }
+
+    private DistributedRateLimitService newInstance(int port, int requestsAllowed, int leaseSize){
+        var settings = new LiveSettingsHolder(new LiveSettings(3, requestsAllowed, 2, 30, 3, 5));
+        var stateStore = new RateLimitStateStore(settings, 1440, 1000, 10, "sliding-log");
+        var local = new RateLimitServiceImpl(stateStore, settings);
+        var counters = new RateLimitCounterRepositoryRedisImpl("localhost", port, 200);
+        stateStores.add(stateStore);
+        counterRepositories.add(counters);
+
+        return new DistributedRateLimitService(local, stateStore, counters, settings, leaseSize, 200, 5);
+    }
+
+    /**
+     * Minimal stand-in for a Redis server, only answers INCRBY, EXPIRE and PEXPIRE.
+     */
+    private static class InProcessRedis {
+        private final ServerSocket serverSocket;
+        private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+        private final Map<String, AtomicLong> commands = new ConcurrentHashMap<>();
+
+        InProcessRedis() throws IOException {
+            serverSocket = new ServerSocket(0);
+
+            var acceptor = new Thread(this::accept, "in-process-redis");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port(){
+            return serverSocket.getLocalPort();
+        }
+
+        long received(String command){
+            var count = commands.get(command);
+            return count == null ? 0 : count.get();
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        private void accept(){
+            try {
+                while (!serverSocket.isClosed()) {
+                    var client = serverSocket.accept();
+                    var handler = new Thread(() -> serve(client));
+                    handler.setDaemon(true);
+                    handler.start();
+                }
+            } catch (IOException ex) {
+                // Server closed.
+            }
+        }
+
+        private void serve(Socket client){
+            try (client) {
+                var input = new BufferedInputStream(client.getInputStream());
+                var output = client.getOutputStream();
+
+                while (true) {
+                    var header = readLine(input);
+                    if(header == null){
+                        return;
+                    }
+
+                    var args = new String[Integer.parseInt(header.substring(1))];
+                    for(var i = 0; i < args.length; i++){
+                        readLine(input);
+                        args[i] = readLine(input);
+                    }
+
+                    reply(output, args);
+                }
+            } catch (IOException ex) {
+                // Client gone.
+            }
+        }
+
+        private void reply(OutputStream output, String[] args) throws IOException {
+            long value;
+            commands.computeIfAbsent(args[0], it -> new AtomicLong()).incrementAndGet();
+
+            switch (args[0]) {
+                case "INCRBY":
+                    value = counters.computeIfAbsent(args[1], it -> new AtomicLong()).addAndGet(Long.parseLong(args[2]));
+                    break;
+                case "EXPIRE":
+                case "PEXPIRE":
+                    value = 1;
+                    break;
+                default:
+                    output.write(("-ERR unknown command " + args[0] + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                    output.flush();
+                    return;
+            }
+
+            output.write((":" + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+        }
+
+        private String readLine(InputStream input) throws IOException {
+            var line = new StringBuilder();
+            int current;
+
+            while ((current = input.read()) != '\r') {
+                if(current == -1){
+                    return null;
+                }
+                line.append((char) current);
+            }
+            input.read();
+
+            return line.toString();
+        }
+    }
+}
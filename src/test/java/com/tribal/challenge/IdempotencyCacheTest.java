@@ -0,0 +1,111 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.config.exceptions.BusinessException;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditRequestView;
+import com.tribal.challenge.services.IdempotencyCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class IdempotencyCacheTest {
+
+    private static final ClientKey CLIENT = ClientKey.of("10.0.0.1");
+
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache(100, 60);
+
+    @Test
+    public void execute_SameKeyTwice_RunsOnceAndReplaysTheResponse(){
+        var executions = new AtomicInteger();
+        Supplier<Mono<CreditRequestView>> request = () -> Mono.fromSupplier(() -> {
+            executions.incrementAndGet();
+            return new CreditRequestView();
+        });
+
+        var first = idempotencyCache.execute(CLIENT, "key-1", request).block();
+        var replay = idempotencyCache.execute(CLIENT, "key-1", request).block();
+
+        Assertions.assertEquals(1, executions.get());
+        Assertions.assertSame(first, replay);
+        Assertions.assertTrue(idempotencyCache.contains(CLIENT, "key-1"));
+        Assertions.assertFalse(idempotencyCache.contains(ClientKey.of("10.0.0.2"), "key-1"));
+    }
+
+    @Test
+    public void execute_DuplicateWhileInFlight_WaitsForTheFirstResponse(){
+        var executions = new AtomicInteger();
+        var response = Sinks.<CreditRequestView>one();
+
+        var first = idempotencyCache.execute(CLIENT, "key-2", () -> {
+            executions.incrementAndGet();
+            return response.asMono();
+        }).toFuture();
+        var duplicate = idempotencyCache.execute(CLIENT, "key-2", () -> {
+            executions.incrementAndGet();
+            return Mono.just(new CreditRequestView());
+        }).toFuture();
+
+        Assertions.assertFalse(duplicate.isDone());
+        var view = new CreditRequestView();
+        response.tryEmitValue(view);
+
+        Assertions.assertEquals(1, executions.get());
+        Assertions.assertSame(view, first.join());
+        Assertions.assertSame(view, duplicate.join());
+    }
+
+    @Test
+    public void execute_Rejected_ReplaysTheRejection(){
+        var executions = new AtomicInteger();
+
+        for(var i = 0; i < 2; i++){
+            Assertions.assertThrows(BusinessException.class, () -> idempotencyCache.execute(CLIENT, "key-3", () -> {
+                executions.incrementAndGet();
+                return Mono.error(BusinessException.CREDIT_LINE_REJECTED);
+            }).block());
+        }
+
+        Assertions.assertEquals(1, executions.get());
+    }
+
+    @Test
+    public void execute_UnexpectedError_RunsAgainOnRetry(){
+        Assertions.assertThrows(IllegalStateException.class, () -> idempotencyCache.execute(CLIENT, "key-4",
+                () -> Mono.error(new IllegalStateException("database down"))).block());
+
+        var view = idempotencyCache.execute(CLIENT, "key-4", () -> Mono.just(new CreditRequestView())).block();
+
+        Assertions.assertNotNull(view);
+    }
+
+    @Test
+    public void execute_FirstClientGoesAway_RetryGetsTheResponse(){
+        var executions = new AtomicInteger();
+        var response = Sinks.<CreditRequestView>one();
+
+        idempotencyCache.execute(CLIENT, "key-5", () -> {
+            executions.incrementAndGet();
+            return response.asMono();
+        }).subscribe().dispose();
+
+        var view = new CreditRequestView();
+        response.tryEmitValue(view);
+        var retry = idempotencyCache.execute(CLIENT, "key-5", () -> {
+            executions.incrementAndGet();
+            return Mono.just(new CreditRequestView());
+        }).block();
+
+        Assertions.assertEquals(1, executions.get());
+        Assertions.assertSame(view, retry);
+    }
+
+    @Test
+    public void execute_BlankKey_ValidationError(){
+        Assertions.assertThrows(IllegalArgumentException.class, () -> idempotencyCache.execute(CLIENT, " ",
+                () -> Mono.just(new CreditRequestView())).block());
+    }
+}
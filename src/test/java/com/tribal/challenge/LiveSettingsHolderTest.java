@@ -0,0 +1,88 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.services.LiveSettingsHolder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+public class LiveSettingsHolderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void reload_FileChanged_NewSettingsWithStartupDefaults() throws IOException {
+        var file = directory.resolve("settings.properties");
+        write(file, "configs.limits.requests-allowed=10\nconfigs.ratios.monthly-ratio=2\n", 1);
+
+        var holder = new LiveSettingsHolder(3, 3, 2, 30, 3, 5, "sliding-log", file.toString(), 3600);
+        try {
+            Assertions.assertEquals(10, holder.current().requestLimit().getMaxAllowed());
+            Assertions.assertEquals(0.5, holder.current().monthlyRevenueFactor());
+            Assertions.assertEquals(3, holder.current().requestsAttempts());
+
+            write(file, "configs.limits.requests-allowed=5\n", 2);
+            holder.reload();
+
+            Assertions.assertEquals(5, holder.current().requestLimit().getMaxAllowed());
+            Assertions.assertEquals(0.2, holder.current().monthlyRevenueFactor());
+        } finally {
+            holder.shutdown();
+        }
+    }
+
+    @Test
+    public void reload_InvalidFile_CurrentSettingsKept() throws IOException {
+        var file = directory.resolve("settings.properties");
+        write(file, "configs.limits.requests-allowed=10\n", 1);
+
+        var holder = new LiveSettingsHolder(3, 3, 2, 30, 3, 5, "sliding-log", file.toString(), 3600);
+        try {
+            write(file, "configs.limits.requests-allowed=0\n", 2);
+            holder.reload();
+            Assertions.assertEquals(10, holder.current().requestLimit().getMaxAllowed());
+
+            write(file, "configs.limits.requests-allowed=ten\n", 3);
+            holder.reload();
+            Assertions.assertEquals(10, holder.current().requestLimit().getMaxAllowed());
+        } finally {
+            holder.shutdown();
+        }
+    }
+
+    @Test
+    public void new_RequestsAllowedOverAlgorithmCap_Throws(){
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new LiveSettingsHolder(3, 70_000, 2, 30, 3, 5, "sliding-counter", "", 3600));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new LiveSettingsHolder(3, 20_000, 2, 30, 3, 5, "token-bucket", "", 3600));
+    }
+
+    @Test
+    public void reload_RequestsAllowedOverAlgorithmCap_CurrentSettingsKept() throws IOException {
+        var file = directory.resolve("settings.properties");
+        write(file, "configs.limits.requests-allowed=10\n", 1);
+
+        var holder = new LiveSettingsHolder(3, 3, 2, 30, 3, 5, "sliding-counter", file.toString(), 3600);
+        try {
+            write(file, "configs.limits.requests-allowed=70000\n", 2);
+            holder.reload();
+
+            Assertions.assertEquals(10, holder.current().requestLimit().getMaxAllowed());
+        } finally {
+            holder.shutdown();
+        }
+    }
+
+    private void write(Path file, String content, long version) throws IOException {
+        Files.writeString(file, content);
+        // Every version gets its own modification time, the file system clock may not move between writes.
+        Files.setLastModifiedTime(file, FileTime.from(Instant.ofEpochSecond(1_600_000_000L + version)));
+    }
+}
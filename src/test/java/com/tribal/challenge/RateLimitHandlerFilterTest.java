@@ -0,0 +1,109 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.config.CreditLineMetrics;
+import com.tribal.challenge.config.RateLimitHandlerFilter;
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.models.CreditRequestView;
+import com.tribal.challenge.services.IdempotencyCache;
+import com.tribal.challenge.services.RateLimitService;
+import com.tribal.challenge.services.RateLimitVerdict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RateLimitHandlerFilterTest {
+
+    private final RateLimitService rateLimitService = Mockito.mock(RateLimitService.class);
+    private final IdempotencyCache idempotencyCache = new IdempotencyCache(100, 60);
+    private final RateLimitHandlerFilter filter = new RateLimitHandlerFilter(rateLimitService,
+            new CreditLineMetrics(new SimpleMeterRegistry()), idempotencyCache);
+
+    @Test
+    public void filter_RateLimited_TooManyRequestsWithoutCallingTheHandler(){
+        Mockito.when(rateLimitService.verdict(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(RateLimitVerdict.rateLimited(1_500)));
+        var exchange = creditRequest();
+        var handled = new AtomicBoolean();
+
+        filter.filter(exchange, it -> Mono.fromRunnable(() -> handled.set(true))).block();
+
+        Assertions.assertFalse(handled.get());
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+        Assertions.assertEquals("2", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals("{\"errorCode\":\"RATE_LIMITED\",\"message\":\"Too many requests, please try later\"}",
+                exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    public void filter_MaxAttemptsExceeded_SalesPersonMessageWithoutCallingTheHandler(){
+        Mockito.when(rateLimitService.verdict(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(RateLimitVerdict.maxAttemptsExceeded(60_000)));
+        var exchange = creditRequest();
+        var handled = new AtomicBoolean();
+
+        filter.filter(exchange, it -> Mono.fromRunnable(() -> handled.set(true))).block();
+
+        Assertions.assertFalse(handled.get());
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode());
+        Assertions.assertEquals("60", exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        Assertions.assertEquals("{\"errorCode\":\"REJECTED\",\"message\":\"A sales person will contact you\"}",
+                exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    public void filter_MaxAttemptsExceededOnBatch_Handled(){
+        Mockito.when(rateLimitService.verdict(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(RateLimitVerdict.maxAttemptsExceeded(60_000)));
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits/batch")
+                .remoteAddress(new InetSocketAddress("127.0.0.1", 5000)));
+        var handled = new AtomicBoolean();
+
+        filter.filter(exchange, it -> Mono.fromRunnable(() -> handled.set(true))).block();
+
+        Assertions.assertTrue(handled.get());
+    }
+
+    @Test
+    public void filter_RateLimitedLookupById_TooManyRequests(){
+        Mockito.when(rateLimitService.verdict(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(RateLimitVerdict.rateLimited(1_500)));
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/v1/credits/2b8f1f6e-5a4e-4b8a-9f8e-2f1c7d3e4a5b")
+                .remoteAddress(new InetSocketAddress("127.0.0.1", 5000)));
+        var handled = new AtomicBoolean();
+
+        filter.filter(exchange, it -> Mono.fromRunnable(() -> handled.set(true))).block();
+
+        Assertions.assertFalse(handled.get());
+        Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    public void filter_ReplayOfAnsweredRequest_HandledWithoutCheckingTheRateLimit(){
+        Mockito.when(rateLimitService.verdict(Mockito.any(ClientKey.class)))
+                .thenReturn(Mono.just(RateLimitVerdict.rateLimited(1_500)));
+        idempotencyCache.execute(ClientKey.of("127.0.0.1"), "retry-1", () -> Mono.just(new CreditRequestView())).block();
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits")
+                .header(IdempotencyCache.HEADER, "retry-1")
+                .remoteAddress(new InetSocketAddress("127.0.0.1", 5000)));
+        var handled = new AtomicBoolean();
+
+        filter.filter(exchange, it -> Mono.fromRunnable(() -> handled.set(true))).block();
+
+        Assertions.assertTrue(handled.get());
+        Mockito.verify(rateLimitService, Mockito.never()).verdict(Mockito.any(ClientKey.class));
+    }
+
+    private MockServerWebExchange creditRequest(){
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits")
+                .remoteAddress(new InetSocketAddress("127.0.0.1", 5000)));
+    }
+}
@@ -1,12 +1,24 @@
 package com.tribal.challenge;
 
 import com.tribal.challenge.config.exceptions.BusinessException;
+import com.tribal.challenge.services.LiveSettings;
+import com.tribal.challenge.services.LiveSettingsHolder;
 import com.tribal.challenge.services.RateLimitService;
+import com.tribal.challenge.services.RateLimitServiceImpl;
+import com.tribal.challenge.services.RateLimitStateStore;
+import com.tribal.challenge.services.RateLimitTiers;
+import com.tribal.challenge.services.RateLimitVerdict;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 @SpringBootTest
 public class RateLimitServiceTest {
 
@@ -81,4 +93,180 @@ public class RateLimitServiceTest {
         Assertions.assertNotNull(results);
         Assertions.assertEquals(2, results);
     }
+
+    @Test
+    public void checkRateLimit_ConcurrentRequests_AllowsOnlyRequestsAllowed() throws Exception {
+        var ip = "127.0.1.6";
+        var executor = Executors.newFixedThreadPool(16);
+
+        try {
+            var calls = IntStream.range(0, 64)
+                    .mapToObj(it -> (Callable<Boolean>) () -> rateLimitService.checkRateLimit(ip).block())
+                    .collect(Collectors.toList());
+
+            var allowed = 0;
+            for(var result: executor.invokeAll(calls)){
+                if(result.get()){
+                    allowed++;
+                }
+            }
+
+            Assertions.assertEquals(3, allowed);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void verdict_AfterBeingBlocked_RateLimitedWithRetryAfter(){
+        var ip = "127.0.1.7";
+        rateLimitService.blockUser(ip).block();
+
+        var verdict = rateLimitService.verdict(ip).block();
+
+        Assertions.assertNotNull(verdict);
+        Assertions.assertEquals(RateLimitVerdict.Outcome.RATE_LIMITED, verdict.getOutcome());
+        Assertions.assertTrue(verdict.getRetryAfterSeconds() >= 1 && verdict.getRetryAfterSeconds() <= 30);
+    }
+
+    @Test
+    public void verdict_OutOfAttemptsOnceBlockIsOver_MaxAttemptsExceeded() throws InterruptedException {
+        var settings = new LiveSettingsHolder(new LiveSettings(2, 3, 2, 0, 3, 5));
+        var stateStore = new RateLimitStateStore(settings, 1440, 1000, 10, "sliding-log");
+        var instance = new RateLimitServiceImpl(stateStore, settings);
+        var ip = "127.0.1.8";
+
+        try {
+            instance.blockUser(ip).block();
+            Assertions.assertThrows(BusinessException.class, () -> instance.blockUser(ip).block());
+            Thread.sleep(2);
+
+            var verdict = instance.verdict(ip).block();
+
+            Assertions.assertNotNull(verdict);
+            Assertions.assertEquals(RateLimitVerdict.Outcome.MAX_ATTEMPTS_EXCEEDED, verdict.getOutcome());
+            Assertions.assertEquals(TimeUnit.MINUTES.toSeconds(1440), verdict.getRetryAfterSeconds());
+            Assertions.assertTrue(instance.checkRateLimit(ip).block());
+        } finally {
+            stateStore.shutdown();
+        }
+    }
+
+    @Test
+    public void verdict_RotatingAddressesOfSameSubnet_RateLimitedBySubnet(){
+        var settings = new LiveSettingsHolder(new LiveSettings(3, 3, 2, 30, 3, 5));
+        var stateStore = new RateLimitStateStore(settings, 1440, 1000, 10, "sliding-log");
+        var instance = new RateLimitServiceImpl(stateStore, settings, new RateLimitTiers(4, 0, 0));
+
+        try {
+            for(var i = 1; i <= 4; i++){
+                Assertions.assertEquals(RateLimitVerdict.ALLOWED, instance.verdict("10.1.2." + i).block());
+            }
+
+            var verdict = instance.verdict("10.1.2.5").block();
+
+            Assertions.assertNotNull(verdict);
+            Assertions.assertEquals(RateLimitVerdict.Outcome.RATE_LIMITED, verdict.getOutcome());
+            Assertions.assertEquals(RateLimitVerdict.Scope.SUBNET, verdict.getScope());
+            Assertions.assertEquals(RateLimitVerdict.ALLOWED, instance.verdict("10.1.3.1").block());
+        } finally {
+            stateStore.shutdown();
+        }
+    }
+
+    @Test
+    public void verdict_ClientOverItsLimit_DoesNotSpendSubnetAllowance(){
+        var settings = new LiveSettingsHolder(new LiveSettings(3, 1, 2, 30, 3, 5));
+        var stateStore = new RateLimitStateStore(settings, 1440, 1000, 10, "sliding-log");
+        var instance = new RateLimitServiceImpl(stateStore, settings, new RateLimitTiers(0, 2, 0));
+
+        try {
+            instance.verdict("2001:db8:0:1::1").block();
+            var rejected = instance.verdict("2001:db8:0:1::1").block();
+
+            Assertions.assertNotNull(rejected);
+            Assertions.assertEquals(RateLimitVerdict.Scope.CLIENT, rejected.getScope());
+            Assertions.assertEquals(RateLimitVerdict.ALLOWED, instance.verdict("2001:db8:0:1::2").block());
+            Assertions.assertEquals(RateLimitVerdict.Scope.SUBNET, instance.verdict("2001:db8:0:1::3").block().getScope());
+        } finally {
+            stateStore.shutdown();
+        }
+    }
+
+    @Test
+    public void verdict_OverGlobalLimit_RateLimitedGlobally(){
+        var settings = new LiveSettingsHolder(new LiveSettings(3, 3, 2, 30, 3, 5));
+        var stateStore = new RateLimitStateStore(settings, 1440, 1000, 10, "sliding-log");
+        var instance = new RateLimitServiceImpl(stateStore, settings, new RateLimitTiers(0, 0, 2));
+
+        try {
+            instance.verdict("10.2.0.1").block();
+            instance.verdict("10.3.0.1").block();
+
+            var verdict = instance.verdict("10.4.0.1").block();
+
+            Assertions.assertNotNull(verdict);
+            Assertions.assertEquals(RateLimitVerdict.Outcome.RATE_LIMITED, verdict.getOutcome());
+            Assertions.assertEquals(RateLimitVerdict.Scope.GLOBAL, verdict.getScope());
+            Assertions.assertEquals(1, verdict.getRetryAfterSeconds());
+        } finally {
+            stateStore.shutdown();
+        }
+    }
+
+    @Test
+    public void sweep_IdleClients_ExpiredUnlessTheyHaveAttempts(){
+        var settings = new LiveSettingsHolder(new LiveSettings(3, 3, 1, 30, 3, 5));
+        var stateStore = new RateLimitStateStore(settings, 1440, 1000, 3600, "sliding-log");
+        var instance = new RateLimitServiceImpl(stateStore, settings);
+
+        try {
+            instance.checkRateLimit("10.5.0.1").block();
+            instance.blockUser("10.5.0.2").block();
+
+            stateStore.sweep(System.currentTimeMillis() + 30_000);
+            Assertions.assertEquals(2, stateStore.size());
+
+            stateStore.sweep(System.currentTimeMillis() + settings.current().idleMillis() + 1);
+
+            Assertions.assertEquals(1, stateStore.size());
+            Assertions.assertEquals(1, stateStore.expiredEntries());
+            Assertions.assertEquals(1, instance.retrieveUserAttempts("10.5.0.2").block());
+        } finally {
+            stateStore.shutdown();
+        }
+    }
+
+    @Test
+    public void getOrCreate_OverMaxClients_LeastRecentlySeenEvicted() throws InterruptedException {
+        var settings = new LiveSettingsHolder(new LiveSettings(3, 3, 2, 30, 3, 5));
+        var stateStore = new RateLimitStateStore(settings, 1440, 10, 3600, "sliding-log");
+        var instance = new RateLimitServiceImpl(stateStore, settings);
+
+        try {
+            for(var i = 1; i <= 10; i++){
+                instance.checkRateLimit("10.6.0." + i).block();
+            }
+            Thread.sleep(20);
+
+            // The recent clients keep a failed attempt, so they can be told apart from a new record.
+            for(var i = 1; i <= 5; i++){
+                instance.blockUser("10.7.0." + i).block();
+            }
+
+            var deadline = System.currentTimeMillis() + 5_000;
+            while (stateStore.size() > 10 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            Assertions.assertEquals(10, stateStore.size());
+            Assertions.assertEquals(5, stateStore.evictedEntries());
+            for(var i = 1; i <= 5; i++){
+                Assertions.assertEquals(1, instance.retrieveUserAttempts("10.7.0." + i).block());
+            }
+        } finally {
+            stateStore.shutdown();
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.services.LiveSettings;
+import com.tribal.challenge.services.LiveSettingsHolder;
+import com.tribal.challenge.services.RateLimitServiceImpl;
+import com.tribal.challenge.services.RateLimitStateStore;
+import com.tribal.challenge.services.RateLimitVerdict;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class RateLimitSnapshotTest {
+
+    private final LiveSettingsHolder settings = new LiveSettingsHolder(new LiveSettings(3, 3, 2, 30, 3, 5));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void restore_AfterRestart_KeepsBlocksAttemptsAndWindows(){
+        var file = directory.resolve("rate-limit.snapshot");
+        var stateStore = newStateStore(file, "sliding-log");
+        var instance = new RateLimitServiceImpl(stateStore, settings);
+
+        instance.blockUser("10.9.0.1").block();
+        for(var i = 0; i < 3; i++){
+            instance.checkRateLimit("10.9.0.2").block();
+        }
+        stateStore.shutdown();
+
+        var restoredStore = newStateStore(file, "sliding-log");
+        var restored = new RateLimitServiceImpl(restoredStore, settings);
+
+        try {
+            Assertions.assertEquals(2, restoredStore.size());
+            Assertions.assertEquals(1, restored.retrieveUserAttempts("10.9.0.1").block());
+            Assertions.assertEquals(RateLimitVerdict.Outcome.RATE_LIMITED, restored.verdict("10.9.0.1").block().getOutcome());
+            Assertions.assertFalse(restored.checkRateLimit("10.9.0.2").block());
+            Assertions.assertTrue(restored.checkRateLimit("10.9.0.3").block());
+        } finally {
+            restoredStore.shutdown();
+        }
+    }
+
+    @Test
+    public void restore_OtherAlgorithm_KeepsBlocksWithNewWindows(){
+        var file = directory.resolve("rate-limit.snapshot");
+        var stateStore = newStateStore(file, "sliding-log");
+        var instance = new RateLimitServiceImpl(stateStore, settings);
+
+        instance.blockUser("10.9.1.1").block();
+        for(var i = 0; i < 3; i++){
+            instance.checkRateLimit("10.9.1.2").block();
+        }
+        stateStore.shutdown();
+
+        var restoredStore = newStateStore(file, "gcra");
+        var restored = new RateLimitServiceImpl(restoredStore, settings);
+
+        try {
+            Assertions.assertFalse(restored.checkRateLimit("10.9.1.1").block());
+            Assertions.assertTrue(restored.checkRateLimit("10.9.1.2").block());
+        } finally {
+            restoredStore.shutdown();
+        }
+    }
+
+    @Test
+    public void restore_WindowOver65535Entries_RestoresEveryClient(){
+        var largeLimit = new LiveSettingsHolder(new LiveSettings(3, 70_000, 2, 30, 3, 5));
+        var file = directory.resolve("rate-limit.snapshot");
+        var stateStore = new RateLimitStateStore(largeLimit, 1440, 2_000_000, 10, "ring-buffer", file.toString(), 30);
+        var instance = new RateLimitServiceImpl(stateStore, largeLimit);
+
+        // A ring buffer saves its whole capacity, 70001 entries, the client after it has to be read back too.
+        instance.checkRateLimit("10.9.2.1").block();
+        instance.checkRateLimit("10.9.2.2").block();
+        stateStore.shutdown();
+
+        var restoredStore = new RateLimitStateStore(largeLimit, 1440, 2_000_000, 10, "ring-buffer", file.toString(), 30);
+
+        try {
+            Assertions.assertEquals(2, restoredStore.size());
+        } finally {
+            restoredStore.shutdown();
+        }
+    }
+
+    @Test
+    public void restore_CorruptedFile_StartsEmpty() throws IOException {
+        var file = directory.resolve("rate-limit.snapshot");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+        var stateStore = newStateStore(file, "sliding-log");
+
+        try {
+            Assertions.assertEquals(0, stateStore.size());
+        } finally {
+            stateStore.shutdown();
+        }
+    }
+
+    private RateLimitStateStore newStateStore(Path file, String algorithm){
+        return new RateLimitStateStore(settings, 1440, 2_000_000, 10, algorithm, file.toString(), 30);
+    }
+}
@@ -0,0 +1,119 @@
+package com.tribal.challenge;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.tribal.challenge.config.AdaptiveConcurrencyFilter;
+import com.tribal.challenge.config.RequestSummaryFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+public class RequestSummaryFilterTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("requests");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    public void setUp(){
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    public void filter_SuccessNotSampled_NothingLogged(){
+        var filter = new RequestSummaryFilter(true, 0);
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits"));
+
+        filter.filter(exchange, it -> {
+            it.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        }).block();
+
+        Assertions.assertTrue(appender.list.isEmpty());
+    }
+
+    @Test
+    public void filter_RateLimited_LoggedAsRejected(){
+        var filter = new RequestSummaryFilter(true, 0);
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits"));
+
+        filter.filter(exchange, it -> {
+            it.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            return Mono.empty();
+        }).block();
+
+        Assertions.assertEquals(1, appender.list.size());
+        var message = appender.list.get(0).getFormattedMessage();
+        Assertions.assertTrue(message.startsWith("outcome=rejected status=429 method=POST path=/v1/credits"), message);
+    }
+
+    @Test
+    public void filter_Shed_LoggedAsShed(){
+        var filter = new RequestSummaryFilter(true, 0);
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits"));
+
+        filter.filter(exchange, it -> {
+            it.getAttributes().put(AdaptiveConcurrencyFilter.SHED_ATTRIBUTE, Boolean.TRUE);
+            it.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return Mono.empty();
+        }).block();
+
+        Assertions.assertEquals(1, appender.list.size());
+        Assertions.assertEquals(Level.INFO, appender.list.get(0).getLevel());
+        Assertions.assertTrue(appender.list.get(0).getFormattedMessage().startsWith("outcome=shed status=503"));
+    }
+
+    @Test
+    public void filter_ServiceUnavailableNotShed_LoggedAsError(){
+        var filter = new RequestSummaryFilter(true, 0);
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits"));
+
+        filter.filter(exchange, it -> {
+            it.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return Mono.empty();
+        }).block();
+
+        Assertions.assertEquals(1, appender.list.size());
+        Assertions.assertEquals(Level.WARN, appender.list.get(0).getLevel());
+        Assertions.assertTrue(appender.list.get(0).getFormattedMessage().startsWith("outcome=error status=503"));
+    }
+
+    @Test
+    public void filter_ChainFails_LoggedAsError(){
+        var filter = new RequestSummaryFilter(true, 0);
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits"));
+
+        Assertions.assertThrows(IllegalStateException.class, () -> filter.filter(exchange,
+                it -> Mono.error(new IllegalStateException("broken"))).block());
+
+        Assertions.assertEquals(1, appender.list.size());
+        Assertions.assertTrue(appender.list.get(0).getFormattedMessage().startsWith("outcome=error status=500"));
+    }
+
+    @Test
+    public void filter_SuccessAlwaysSampled_LoggedWithSampleRate(){
+        var filter = new RequestSummaryFilter(true, 1);
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/v1/credits"));
+
+        filter.filter(exchange, it -> {
+            it.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        }).block();
+
+        Assertions.assertEquals(1, appender.list.size());
+        Assertions.assertTrue(appender.list.get(0).getFormattedMessage().endsWith("sample_rate=1.0"));
+    }
+}
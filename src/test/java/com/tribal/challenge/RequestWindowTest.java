@@ -0,0 +1,124 @@
+package com.tribal.challenge;
+
+import com.tribal.challenge.models.ClientKey;
+import com.tribal.challenge.services.RateLimitAlgorithm;
+import com.tribal.challenge.services.RequestLimit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RequestWindowTest {
+
+    private static final RequestLimit LIMIT = new RequestLimit(3, 1_000);
+
+    @Test
+    public void tryAcquire_RingBufferOverLimit_ReturnsFalse(){
+        var window = RateLimitAlgorithm.RING_BUFFER.newWindow();
+
+        Assertions.assertTrue(window.tryAcquire(10_000, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(10_100, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(10_200, LIMIT));
+        Assertions.assertFalse(window.tryAcquire(10_300, LIMIT));
+    }
+
+    @Test
+    public void tryAcquire_RingBufferAfterOldestExpires_ReturnsTrue(){
+        var window = RateLimitAlgorithm.RING_BUFFER.newWindow();
+
+        window.tryAcquire(10_000, LIMIT);
+        window.tryAcquire(10_500, LIMIT);
+        window.tryAcquire(10_600, LIMIT);
+
+        Assertions.assertTrue(window.tryAcquire(11_001, LIMIT));
+        Assertions.assertFalse(window.tryAcquire(11_002, LIMIT));
+    }
+
+    @Test
+    public void tryAcquire_SlidingCounterOverLimit_ReturnsFalse(){
+        var window = RateLimitAlgorithm.SLIDING_COUNTER.newWindow();
+
+        Assertions.assertTrue(window.tryAcquire(10_000, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(10_100, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(10_200, LIMIT));
+        Assertions.assertFalse(window.tryAcquire(10_300, LIMIT));
+    }
+
+    @Test
+    public void tryAcquire_SlidingCounterPreviousWindowWeighted_ReturnsFalseUntilItFades(){
+        var window = RateLimitAlgorithm.SLIDING_COUNTER.newWindow();
+
+        window.tryAcquire(10_000, LIMIT);
+        window.tryAcquire(10_100, LIMIT);
+        window.tryAcquire(10_200, LIMIT);
+
+        // 90% of the previous window still overlaps: 3 * 0.9 = 2.7 requests counted.
+        Assertions.assertTrue(window.tryAcquire(11_100, LIMIT));
+        Assertions.assertFalse(window.tryAcquire(11_150, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(11_900, LIMIT));
+    }
+
+    @Test
+    public void tryAcquire_SlidingLogOverLimit_ReturnsFalse(){
+        var window = RateLimitAlgorithm.SLIDING_LOG.newWindow();
+
+        Assertions.assertTrue(window.tryAcquire(10_000, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(10_100, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(10_200, LIMIT));
+        Assertions.assertFalse(window.tryAcquire(10_300, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(11_001, LIMIT));
+    }
+
+    @Test
+    public void tryAcquire_TokenBucketBurstThenRefill_ReturnsTrueAfterRetryAfter(){
+        var window = RateLimitAlgorithm.TOKEN_BUCKET.newWindow();
+        var now = 1_700_000_000_000L;
+
+        Assertions.assertTrue(window.tryAcquire(now, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(now, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(now, LIMIT));
+        Assertions.assertFalse(window.tryAcquire(now, LIMIT));
+
+        var retryAfter = window.retryAfterMillis(now, LIMIT);
+
+        Assertions.assertEquals(334, retryAfter);
+        Assertions.assertFalse(window.tryAcquire(now + retryAfter - 1, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(now + retryAfter, LIMIT));
+    }
+
+    @Test
+    public void tryAcquire_GcraBurstThenRefill_ReturnsTrueAfterRetryAfter(){
+        var window = RateLimitAlgorithm.GCRA.newWindow();
+        var now = 1_700_000_000_000L;
+
+        Assertions.assertTrue(window.tryAcquire(now, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(now, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(now, LIMIT));
+        Assertions.assertFalse(window.tryAcquire(now, LIMIT));
+
+        var retryAfter = window.retryAfterMillis(now, LIMIT);
+
+        Assertions.assertEquals(334, retryAfter);
+        Assertions.assertFalse(window.tryAcquire(now + retryAfter - 1, LIMIT));
+        Assertions.assertTrue(window.tryAcquire(now + retryAfter, LIMIT));
+    }
+
+    @Test
+    public void retryAfterMillis_SlidingLogOverLimit_ReturnsTimeUntilOldestExpires(){
+        var window = RateLimitAlgorithm.SLIDING_LOG.newWindow();
+
+        window.tryAcquire(10_000, LIMIT);
+        window.tryAcquire(10_100, LIMIT);
+        window.tryAcquire(10_200, LIMIT);
+
+        Assertions.assertEquals(700, window.retryAfterMillis(10_300, LIMIT));
+    }
+
+    @Test
+    public void forKey_Subnet_GcraWhateverTheClientAlgorithm(){
+        var client = ClientKey.of("10.0.0.1");
+
+        for(var algorithm: RateLimitAlgorithm.values()){
+            Assertions.assertEquals(algorithm, algorithm.forKey(client));
+            Assertions.assertEquals(RateLimitAlgorithm.GCRA, algorithm.forKey(client.subnet()));
+        }
+    }
+}